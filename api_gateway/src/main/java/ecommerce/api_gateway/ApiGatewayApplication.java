@@ -1,14 +1,18 @@
 package ecommerce.api_gateway;
 
+import ecommerce.common.config.BlockingCallDetector;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 
 @SpringBootApplication
 @EnableWebFluxSecurity
+@EnableScheduling
 public class ApiGatewayApplication {
 
     public static void main(String[] args) {
+        BlockingCallDetector.installIfEnabled();
         SpringApplication.run(ApiGatewayApplication.class, args);
     }
 
@@ -1,5 +1,7 @@
 package ecommerce.api_gateway.controller;
 
+import ecommerce.api_gateway.ProtoEventQuery;
+import ecommerce.api_gateway.ProtoMonitoringEvent;
 import ecommerce.api_gateway.ProtoRequest;
 import ecommerce.api_gateway.ProtoResponse;
 import ecommerce.api_gateway.security.CustomAuthentication;
@@ -7,9 +9,12 @@ import ecommerce.api_gateway.service.RSocketService;
 import ecommerce.api_gateway.util.AuthResponseStatuses;
 import ecommerce.api_gateway.util.Constants;
 import ecommerce.api_gateway.util.Services;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.exceptions.RejectedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
@@ -18,10 +23,18 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -106,6 +119,7 @@ public class ApiGatewayController {
                             .putMetadata("serviceToken", serviceToken)
                             .putMetadata("userAgent", userAgent)
                             .putMetadata("clientCity", clientCity)
+                            .putMetadata("clientAddress", clientAddress(exchange))
                             .putData("email", body.getOrDefault("email", ""))
                             .putData("password", body.getOrDefault("password", ""))
                             .build();
@@ -181,6 +195,188 @@ public class ApiGatewayController {
                 });
     }
 
+    /**
+     * Makes auth_service reload its role/permission matrix now rather than on the next change
+     * notification.
+     */
+    @PostMapping("admin/permissions/reload")
+    public Mono<ResponseEntity<Map<String, String>>> reloadPermissions(
+            ServerWebExchange exchange) {
+        return adminRequest(exchange, "auth.admin.reloadPermissions");
+    }
+
+    /**
+     * Returns auth_service's counters, such as connection pool and validation figures.
+     */
+    @GetMapping("admin/metrics")
+    public Mono<ResponseEntity<Map<String, String>>> metrics(ServerWebExchange exchange) {
+        return adminRequest(exchange, "auth.admin.metrics");
+    }
+
+    private Mono<ResponseEntity<Map<String, String>>> adminRequest(ServerWebExchange exchange,
+            String route) {
+        return ReactiveSecurityContextHolder.getContext()
+                .flatMap(securityContext -> {
+                    CustomAuthentication authentication = (CustomAuthentication) securityContext
+                            .getAuthentication();
+                    String serviceToken = authentication.getPrincipal().get("serviceToken");
+
+                    ProtoRequest protoRequest = ProtoRequest.newBuilder()
+                            .putMetadata("serviceToken", serviceToken)
+                            .build();
+
+                    return rSocketService.getRSocketRequester(Services.AUTH_SERVICE)
+                            .route(route)
+                            .data(protoRequest)
+                            .retrieveMono(ProtoResponse.class)
+                            .map(protoResponse -> {
+                                Map<String, String> responseBody = createResponseBody(
+                                        authentication, protoResponse);
+                                responseBody.putAll(protoResponse.getDataMap());
+                                return new ResponseEntity<>(responseBody,
+                                        HttpStatus.valueOf(protoResponse.getStatusCode()));
+                            })
+                            .onErrorResume(e -> {
+                                log.error("Error processing {} request", route, e);
+                                return Mono.just(new ResponseEntity<>(
+                                        Map.of("error", "Admin request failed"),
+                                        HttpStatus.INTERNAL_SERVER_ERROR));
+                            });
+                });
+    }
+
+    /**
+     * Streams stored monitoring events as NDJSON, newest first. To continue after the last
+     * event received, pass its timestamp and id as afterTimestamp and afterId.
+     * <p>
+     * The status is chosen once the first event or error arrives: 403 when monitoring rejects
+     * the caller, 400 for an invalid query and 500 for anything else. An error after events
+     * have been streamed can only end the stream.
+     */
+    @GetMapping(value = "admin/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> queryEvents(
+            @RequestParam Map<String, String> params,
+            ServerWebExchange exchange) {
+        return ReactiveSecurityContextHolder.getContext()
+                .flatMap(securityContext -> {
+                    CustomAuthentication authentication = (CustomAuthentication) securityContext
+                            .getAuthentication();
+                    String serviceToken = authentication.getPrincipal().get("serviceToken");
+                    String userAgent = exchange.getRequest().getHeaders().getFirst("User-Agent");
+                    String clientCity = exchange.getRequest().getHeaders().getFirst("Client-City");
+
+                    ProtoEventQuery query = ProtoEventQuery.newBuilder()
+                            .putMetadata("serviceToken", serviceToken)
+                            .putMetadata("userAgent", userAgent != null ? userAgent : "")
+                            .putMetadata("clientCity", clientCity != null ? clientCity : "")
+                            .setUserId(params.getOrDefault("userId", ""))
+                            .setEventType(params.getOrDefault("eventType", ""))
+                            .setServiceName(params.getOrDefault("serviceName", ""))
+                            .setFrom(params.getOrDefault("from", ""))
+                            .setTo(params.getOrDefault("to", ""))
+                            .setLimit((int) Math.min(parseNumber(params.get("limit")),
+                                    Integer.MAX_VALUE))
+                            .setAfterTimestamp(params.getOrDefault("afterTimestamp", ""))
+                            .setAfterId(parseNumber(params.get("afterId")))
+                            .build();
+
+                    Flux<Map<String, Object>> events = rSocketService
+                            .getRSocketRequester(Services.MONITORING_SERVICE)
+                            .route("monitoring.queryEvents")
+                            .data(query)
+                            .retrieveFlux(ProtoMonitoringEvent.class)
+                            .map(this::toEventBody);
+                    return toEventsResponse(events);
+                });
+    }
+
+    /**
+     * Holds the response back until the first signal of events. The source is not cancelled
+     * when the response is emitted, so the body picks up from that first signal.
+     */
+    static Mono<ResponseEntity<Flux<Map<String, Object>>>> toEventsResponse(
+            Flux<Map<String, Object>> events) {
+        return events
+                .switchOnFirst((first, stream) -> {
+                    if (first.isOnError()) {
+                        Throwable e = first.getThrowable();
+                        HttpStatus status = eventsQueryStatus(e);
+                        log.error("Error processing events query: {}", e.getMessage());
+                        return Mono.just(ResponseEntity.status(status)
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .body(Flux.just(Map.<String, Object>of("error",
+                                        status == HttpStatus.INTERNAL_SERVER_ERROR
+                                                ? "Events query failed"
+                                                : e.getMessage()))));
+                    }
+                    return Mono.just(ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .body(stream.onErrorResume(e -> {
+                                log.error("Events query failed mid-stream: {}", e.getMessage());
+                                return Flux.empty();
+                            })));
+                }, false)
+                .singleOrEmpty();
+    }
+
+    // Monitoring answers a rejected caller with REJECTED and an invalid query with INVALID
+    private static HttpStatus eventsQueryStatus(Throwable e) {
+        if (e instanceof RejectedException || e instanceof SecurityException) {
+            return HttpStatus.FORBIDDEN;
+        }
+        if (e instanceof InvalidException || e instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    private Map<String, Object> toEventBody(ProtoMonitoringEvent event) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", event.getId());
+        body.put("timestamp", event.getTimestamp());
+        body.put("eventType", event.getEventType());
+        body.put("serviceName", event.getServiceName());
+        body.put("userId", event.getUserId());
+        body.put("userAgent", event.getUserAgent());
+        body.put("clientCity", event.getClientCity());
+        body.put("details", event.getDetails());
+        body.put("metadata", event.getMetadataMap());
+        return body;
+    }
+
+    /**
+     * Address of the peer of this connection, which login throttling counts failures against.
+     * The gateway terminates client connections itself, so unlike User-Agent or Client-City the
+     * caller cannot choose it. IPv6 addresses are narrowed to their /64, the smallest block a
+     * single client is normally given.
+     */
+    private static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return "";
+        }
+        InetAddress address = remote.getAddress();
+        if (address instanceof Inet6Address) {
+            byte[] prefix = address.getAddress();
+            Arrays.fill(prefix, 8, 16, (byte) 0);
+            try {
+                return InetAddress.getByAddress(prefix).getHostAddress() + "/64";
+            } catch (UnknownHostException e) {
+                return address.getHostAddress();
+            }
+        }
+        return address.getHostAddress();
+    }
+
+    // Missing or malformed numbers fall back to 0, which the monitoring service reads as unset
+    private static long parseNumber(String value) {
+        try {
+            return value == null || value.isBlank() ? 0 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private Map<String, String> createResponseBody(CustomAuthentication authentication,
             ProtoResponse protoResponse) {
         Map<String, String> responseBody = new HashMap<>();
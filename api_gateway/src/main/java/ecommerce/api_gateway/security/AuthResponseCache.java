@@ -0,0 +1,230 @@
+package ecommerce.api_gateway.security;
+
+import ecommerce.api_gateway.ProtoAuthResponse;
+import ecommerce.api_gateway.util.AuthResponseStatuses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-capped cache of successful auth.validateToken responses keyed by a digest of
+ * (accessToken, sessionId, services, destinations). An entry never outlives the service token
+ * it carries: it expires a configurable margin before the service token's own expiry.
+ * <p>
+ * Entries are only served while the revocation feed vouches for the time since they were
+ * cached, so a logout or rotated session stops being served as soon as the feed reports it.
+ */
+@Component
+@Slf4j
+public class AuthResponseCache {
+
+    private static final String CAPABILITY_PREFIX = "cap1.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, CachedAuthResponse> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long serviceTokenMarginMillis;
+
+    public AuthResponseCache(
+            @Value("${auth-cache.enabled:true}") boolean enabled,
+            @Value("${auth-cache.max-entries:100000}") int maxEntries,
+            @Value("${auth-cache.ttl:60s}") Duration ttl,
+            @Value("${auth-cache.service-token-margin:30s}") Duration serviceTokenMargin) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.serviceTokenMarginMillis = serviceTokenMargin.toMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(String accessToken, String sessionId, List<String> services,
+            List<String> destinations) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, accessToken);
+            update(digest, sessionId);
+            update(digest, String.join(",", services));
+            update(digest, String.join(",", destinations));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separator byte so that ("ab", "c") and ("a", "bc") produce different keys
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @param coveredSince epoch millis from which revocations are known to the caller; entries
+     *                     cached before that are not served, since a revocation may have been
+     *                     missed
+     */
+    public ProtoAuthResponse get(String key, long coveredSince) {
+        CachedAuthResponse cached = entries.get(key);
+        if (cached == null || cached.cachedAtMillis() < coveredSince) {
+            misses.increment();
+            return null;
+        }
+        if (cached.expiresAtMillis() <= System.currentTimeMillis()) {
+            if (entries.remove(key, cached)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.response();
+    }
+
+    /**
+     * Caches the response only when it authorized the request with the very credentials that
+     * were presented. Responses that rotated tokens, created guest sessions or denied access
+     * always go back to auth_service.
+     */
+    public void putIfCacheable(String key, String accessToken, String sessionId,
+            ProtoAuthResponse response) {
+        if (!isCacheable(accessToken, sessionId, response)) {
+            return;
+        }
+        long expiresAt = expiryFor(response.getMetadataOrDefault("serviceToken", ""));
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        entries.put(key, new CachedAuthResponse(response, System.currentTimeMillis(), expiresAt));
+    }
+
+    private boolean isCacheable(String accessToken, String sessionId, ProtoAuthResponse response) {
+        String status = response.getStatus();
+        if (!AuthResponseStatuses.AUTHORIZED_USER.name().equals(status)
+                && !AuthResponseStatuses.AUTHORIZED_GUEST_USER.name().equals(status)) {
+            return false;
+        }
+        return accessToken.equals(response.getMetadataOrDefault("accessToken", ""))
+                && sessionId.equals(response.getMetadataOrDefault("sessionId", ""));
+    }
+
+    private long expiryFor(String serviceToken) {
+        long now = System.currentTimeMillis();
+        long serviceTokenExpiry = readExpiryMillis(serviceToken);
+        if (serviceTokenExpiry <= 0) {
+            return 0;
+        }
+        return Math.min(now + ttlMillis, serviceTokenExpiry - serviceTokenMarginMillis);
+    }
+
+    private long readExpiryMillis(String serviceToken) {
+        if (serviceToken.startsWith(CAPABILITY_PREFIX)) {
+            return readCapabilityExpiryMillis(serviceToken);
+        }
+        String[] parts = serviceToken.split("\\.");
+        if (parts.length != 3) {
+            return 0;
+        }
+        try {
+            JsonNode payload = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            return payload.path("exp").asLong(0) * 1000;
+        } catch (RuntimeException e) {
+            log.debug("Could not read service token expiry: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    // Capability tokens carry their expiry in epoch seconds right after the version byte
+    private long readCapabilityExpiryMillis(String serviceToken) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder()
+                    .decode(serviceToken.substring(CAPABILITY_PREFIX.length()));
+            return bytes.length < 9 ? 0 : ByteBuffer.wrap(bytes, 1, 8).getLong() * 1000;
+        } catch (IllegalArgumentException e) {
+            log.debug("Could not read capability token expiry: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private void makeRoom() {
+        purgeExpired();
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().expiresAtMillis() <= now;
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${auth-cache.stats-interval-ms:60000}")
+    public void reportStats() {
+        if (!enabled) {
+            return;
+        }
+        purgeExpired();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        log.info("Auth response cache: size={} hits={} misses={} evictions={} hitRatio={}",
+                entries.size(), hitCount, missCount, evictions.sum(),
+                total == 0 ? "n/a" : "%.3f".formatted((double) hitCount / total));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private record CachedAuthResponse(ProtoAuthResponse response, long cachedAtMillis,
+            long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,94 @@
+package ecommerce.api_gateway.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.UnsupportedKeyException;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Public key decoding and key ids for verifying JWTs signed by auth_service. A key id is derived
+ * from the public key itself, so it matches the kid auth_service puts in the token header.
+ */
+public final class JwtKeys {
+
+    private static final String[] PUBLIC_KEY_ALGORITHMS = {"RSA", "EC", "Ed25519"};
+
+    private JwtKeys() {
+    }
+
+    /**
+     * Decodes an X.509 public key of any supported type, so verifiers need no algorithm setting.
+     */
+    public static PublicKey parsePublicKey(String key) throws GeneralSecurityException {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(key));
+        for (String algorithm : PUBLIC_KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePublic(spec);
+            } catch (InvalidKeySpecException e) {
+                // Not a key of this type, try the next one
+            }
+        }
+        throw new InvalidKeySpecException("Unsupported JWT public key type");
+    }
+
+    public static String keyId(PublicKey publicKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Arrays.copyOf(digest, 12));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The current public key followed by any comma-separated additional keys, by key id.
+     * Additional keys let verifiers accept a new key before the signer switches to it and an
+     * old key until the tokens it signed have expired.
+     */
+    public static Map<String, PublicKey> keyRing(String currentKey, String additionalKeys)
+            throws GeneralSecurityException {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        PublicKey current = parsePublicKey(currentKey);
+        keys.put(keyId(current), current);
+        for (String additional : additionalKeys.split(",")) {
+            if (!additional.isBlank()) {
+                PublicKey key = parsePublicKey(additional.trim());
+                keys.putIfAbsent(keyId(key), key);
+            }
+        }
+        return Map.copyOf(keys);
+    }
+
+    /**
+     * Picks the verification key by the token's kid. Tokens signed before key ids were added
+     * carry none and are checked against the current key.
+     */
+    public static LocatorAdapter<Key> locator(Map<String, PublicKey> keys, PublicKey current) {
+        return new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                String keyId = header.getKeyId();
+                if (keyId == null) {
+                    return current;
+                }
+                PublicKey key = keys.get(keyId);
+                if (key == null) {
+                    throw new UnsupportedKeyException("Unknown JWT key id: " + keyId);
+                }
+                return key;
+            }
+        };
+    }
+}
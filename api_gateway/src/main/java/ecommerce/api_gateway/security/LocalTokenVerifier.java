@@ -0,0 +1,118 @@
+package ecommerce.api_gateway.security;
+
+import ecommerce.api_gateway.ProtoAuthResponse;
+import ecommerce.api_gateway.service.RevocationFeedClient;
+import ecommerce.api_gateway.util.AuthResponseStatuses;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Authorizes requests at the gateway with the access token's signature instead of a round trip
+ * to auth_service.
+ * <p>
+ * Only routes that need no service token are served locally, and only when the token verifies,
+ * is not close to expiry, was issued while the revocation feed has complete history and is not
+ * in the {@link RevocationFilter}. Every other case returns null so the caller asks
+ * auth_service, which also remains the only place the session id is checked against Redis.
+ */
+@Component
+public class LocalTokenVerifier {
+
+    private static final String NO_SERVICE = "NONE";
+
+    private final RevocationFilter revocationFilter;
+    private final RevocationFeedClient revocationFeedClient;
+
+    private final boolean enabled;
+    private final long refreshThresholdMillis;
+    private final JwtParser parser;
+
+    public LocalTokenVerifier(RevocationFilter revocationFilter,
+            RevocationFeedClient revocationFeedClient,
+            @Value("${local-verification.enabled:false}") boolean enabled,
+            @Value("${local-verification.access-public-key:}") String accessPublicKey,
+            @Value("${local-verification.additional-public-keys:}") String additionalKeys,
+            @Value("${local-verification.refresh-threshold:10m}") Duration refreshThreshold)
+            throws Exception {
+        this.revocationFilter = revocationFilter;
+        this.revocationFeedClient = revocationFeedClient;
+        this.enabled = enabled;
+        this.refreshThresholdMillis = refreshThreshold.toMillis();
+        if (!enabled) {
+            this.parser = null;
+            return;
+        }
+        if (accessPublicKey.isBlank()) {
+            throw new IllegalStateException(
+                    "local-verification.access-public-key is required when local verification is enabled");
+        }
+        this.parser = Jwts.parser()
+                .keyLocator(JwtKeys.locator(JwtKeys.keyRing(accessPublicKey, additionalKeys),
+                        JwtKeys.parsePublicKey(accessPublicKey)))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return an authorized response built at the gateway, or null when auth_service must decide
+     */
+    public ProtoAuthResponse authorize(String accessToken, String sessionId, String refreshToken,
+            List<String> services, List<String> destinations) {
+        if (!enabled || accessToken.isBlank() || sessionId.isBlank()
+                || !servesWithoutServiceToken(services, destinations)) {
+            return null;
+        }
+
+        long trustedSince = revocationFeedClient.getTrustedSince();
+        if (trustedSince == Long.MAX_VALUE) {
+            return null;
+        }
+
+        // Signature verification with the public key is cheap enough to stay on the event loop
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(accessToken).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (claims.getExpiration() == null || claims.getIssuedAt() == null
+                || claims.getExpiration().getTime() - now < refreshThresholdMillis
+                || claims.getIssuedAt().getTime() < trustedSince
+                || revocationFilter.mightBeRevoked(accessToken)) {
+            return null;
+        }
+
+        // Matches auth_service: every signed-in role, ADMIN included, is a user
+        String roleName = claims.get("role", String.class);
+        AuthResponseStatuses status = "GUEST_USER".equals(roleName)
+                ? AuthResponseStatuses.AUTHORIZED_GUEST_USER
+                : AuthResponseStatuses.AUTHORIZED_USER;
+
+        return ProtoAuthResponse.newBuilder()
+                .setStatus(status.name())
+                .setStatusCode(200)
+                .putMetadata("accessToken", accessToken)
+                .putMetadata("sessionId", sessionId)
+                .putMetadata("serviceToken", "")
+                .putMetadata("refreshToken", refreshToken)
+                .build();
+    }
+
+    // Every role is granted NONE/NONE, so these routes need no permission lookup
+    private boolean servesWithoutServiceToken(List<String> services, List<String> destinations) {
+        return services.stream().allMatch(NO_SERVICE::equals)
+                && destinations.stream().allMatch(NO_SERVICE::equals);
+    }
+}
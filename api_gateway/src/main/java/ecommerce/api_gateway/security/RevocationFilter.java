@@ -0,0 +1,108 @@
+package ecommerce.api_gateway.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact record of revoked access tokens, fed by auth_service's revocation stream.
+ * <p>
+ * Two Bloom filter generations are kept; a digest is looked up in both and added to the
+ * current one. Rotating drops the older generation, so an entry lives between one and two
+ * generation lengths. False positives only send a request back to auth_service.
+ */
+@Component
+@Slf4j
+public class RevocationFilter {
+
+    private final int bits;
+    private final int hashFunctions;
+
+    private volatile Generations generations;
+
+    public RevocationFilter(
+            @Value("${local-verification.filter-bits:4194304}") int bits,
+            @Value("${local-verification.filter-hash-functions:7}") int hashFunctions) {
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        this.generations = new Generations(newGeneration(), newGeneration());
+    }
+
+    /**
+     * @param digest Base64 SHA-256 of the access token, as used for the session key in Redis
+     */
+    public void add(String digest) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(digest);
+        } catch (IllegalArgumentException e) {
+            bytes = new byte[0];
+        }
+        if (bytes.length < 16) {
+            log.warn("Ignoring malformed revocation digest");
+            return;
+        }
+        AtomicLongArray current = generations.current();
+        for (int index : indexes(bytes)) {
+            current.getAndUpdate(index >>> 6, word -> word | (1L << index));
+        }
+    }
+
+    public boolean mightBeRevoked(String accessToken) {
+        int[] indexes = indexes(digest(accessToken));
+        Generations snapshot = generations;
+        return contains(snapshot.current(), indexes) || contains(snapshot.previous(), indexes);
+    }
+
+    @Scheduled(fixedDelayString = "${local-verification.filter-generation-ms:86400000}",
+            initialDelayString = "${local-verification.filter-generation-ms:86400000}")
+    public void rotate() {
+        generations = new Generations(newGeneration(), generations.current());
+        log.info("Rotated revocation filter generation");
+    }
+
+    private boolean contains(AtomicLongArray generation, int[] indexes) {
+        for (int index : indexes) {
+            if ((generation.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] indexes(byte[] digest) {
+        // The digest is already uniformly distributed; derive k positions by double hashing
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        long h1 = buffer.getLong(0);
+        long h2 = buffer.getLong(8) | 1;
+        int[] indexes = new int[hashFunctions];
+        for (int i = 0; i < hashFunctions; i++) {
+            indexes[i] = (int) Math.floorMod(h1 + i * h2, (long) bits);
+        }
+        return indexes;
+    }
+
+    private AtomicLongArray newGeneration() {
+        return new AtomicLongArray((bits + 63) >>> 6);
+    }
+
+    private byte[] digest(String accessToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Generations(AtomicLongArray current, AtomicLongArray previous) {
+    }
+}
@@ -3,6 +3,7 @@ package ecommerce.api_gateway.security;
 import ecommerce.api_gateway.ProtoAuthRequest;
 import ecommerce.api_gateway.ProtoAuthResponse;
 import ecommerce.api_gateway.service.RSocketService;
+import ecommerce.api_gateway.service.RevocationFeedClient;
 import ecommerce.api_gateway.util.AuthResponseStatuses;
 import ecommerce.api_gateway.util.Constants;
 import ecommerce.api_gateway.util.ServiceDestination;
@@ -14,6 +15,7 @@ import org.jspecify.annotations.NonNull;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
@@ -36,6 +38,14 @@ public class TokenValidationFilter implements WebFilter {
 
     private final RSocketService rSocketService;
 
+    private final AuthResponseCache authResponseCache;
+
+    private final LocalTokenVerifier localTokenVerifier;
+
+    private final RevocationFilter revocationFilter;
+
+    private final RevocationFeedClient revocationFeedClient;
+
     @Override
     public @NonNull Mono<Void> filter(@NonNull ServerWebExchange exchange,
             @NonNull WebFilterChain chain) {
@@ -62,7 +72,7 @@ public class TokenValidationFilter implements WebFilter {
         String userAgent = exchange.getRequest().getHeaders().getFirst("User-Agent");
         String clientCity = exchange.getRequest().getHeaders().getFirst("Client-City");
 
-        return validateToken(accessToken, sessionId, refreshToken, services, destinations,
+        return cachedOrValidate(accessToken, sessionId, refreshToken, services, destinations,
                 userAgent,
                 clientCity)
                 .flatMap(
@@ -106,6 +116,12 @@ public class TokenValidationFilter implements WebFilter {
                 exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
                 return exchange.getResponse().writeWith(Mono.just(dataBuffer));
 
+            case SERVICE_OVERLOADED:
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return exchange.getResponse().writeWith(Mono.just(dataBuffer));
+
             case UNEXPECTED_ERROR:
             default:
                 exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -157,6 +173,34 @@ public class TokenValidationFilter implements WebFilter {
                 .build());
     }
 
+    private Mono<ProtoAuthResponse> cachedOrValidate(String accessToken, String sessionId,
+            String refreshToken,
+            List<String> services, List<String> destinations, String userAgent, String clientCity) {
+        ProtoAuthResponse localResponse = localTokenVerifier.authorize(accessToken, sessionId,
+                refreshToken, services, destinations);
+        if (localResponse != null) {
+            return Mono.just(localResponse);
+        }
+
+        if (!authResponseCache.isEnabled() || accessToken.isBlank() || sessionId.isBlank()) {
+            return validateToken(accessToken, sessionId, refreshToken, services, destinations,
+                    userAgent, clientCity);
+        }
+
+        // A cached response is only served while the revocation feed covers the time since it
+        // was cached, so a session revoked in the meantime is always seen
+        String cacheKey = authResponseCache.key(accessToken, sessionId, services, destinations);
+        ProtoAuthResponse cached = authResponseCache.get(cacheKey,
+                revocationFeedClient.getTrustedSince());
+        if (cached != null && !revocationFilter.mightBeRevoked(accessToken)) {
+            return Mono.just(cached);
+        }
+        return validateToken(accessToken, sessionId, refreshToken, services, destinations,
+                userAgent, clientCity)
+                .doOnNext(authResponse -> authResponseCache.putIfCacheable(cacheKey, accessToken,
+                        sessionId, authResponse));
+    }
+
     private Mono<ProtoAuthResponse> validateToken(String accessToken, String sessionId,
             String refreshToken,
             List<String> services, List<String> destinations, String userAgent, String clientCity) {
@@ -0,0 +1,100 @@
+package ecommerce.api_gateway.service;
+
+import ecommerce.api_gateway.ProtoRevocation;
+import ecommerce.api_gateway.security.RevocationFilter;
+import ecommerce.api_gateway.util.Services;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Keeps the auth.revocations stream open and feeds it into the {@link RevocationFilter}.
+ * <p>
+ * The feed is only trusted once the first heartbeat after (re)subscribing has told us from when
+ * auth_service's history is complete, and only while heartbeats keep arriving. Anything else
+ * makes local verification and the auth response cache step aside and send requests to
+ * auth_service. The feed runs whenever either of them is enabled.
+ */
+@Service
+@Slf4j
+public class RevocationFeedClient {
+
+    private static final int MISSED_HEARTBEATS_TOLERATED = 3;
+
+    private final RSocketService rSocketService;
+    private final RevocationFilter revocationFilter;
+
+    private final boolean enabled;
+    private final long staleAfterMillis;
+
+    private volatile long trustedSince = Long.MAX_VALUE;
+    private volatile long lastMessageAt;
+
+    private Disposable subscription;
+
+    public RevocationFeedClient(RSocketService rSocketService, RevocationFilter revocationFilter,
+            @Value("${local-verification.enabled:false}") boolean localVerificationEnabled,
+            @Value("${auth-cache.enabled:true}") boolean authCacheEnabled,
+            @Value("${local-verification.feed-heartbeat:15s}") Duration heartbeat) {
+        this.rSocketService = rSocketService;
+        this.revocationFilter = revocationFilter;
+        this.enabled = localVerificationEnabled || authCacheEnabled;
+        this.staleAfterMillis = heartbeat.toMillis() * MISSED_HEARTBEATS_TOLERATED;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = rSocketService.getRSocketRequester(Services.AUTH_SERVICE)
+                .route("auth.revocations")
+                .retrieveFlux(ProtoRevocation.class)
+                .doOnSubscribe(s -> trustedSince = Long.MAX_VALUE)
+                .doOnNext(this::accept)
+                .doOnError(e -> {
+                    trustedSince = Long.MAX_VALUE;
+                    log.warn("Revocation feed lost: {}", e.getMessage());
+                })
+                .doOnComplete(() -> trustedSince = Long.MAX_VALUE)
+                .repeat()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    private void accept(ProtoRevocation revocation) {
+        lastMessageAt = System.currentTimeMillis();
+        if (!revocation.getDigest().isEmpty()) {
+            revocationFilter.add(revocation.getDigest());
+        } else if (trustedSince == Long.MAX_VALUE) {
+            trustedSince = revocation.getCoveredSince();
+            log.info("Revocation feed connected, complete since {}", trustedSince);
+        }
+    }
+
+    /**
+     * Earliest token issue time (epoch millis) the feed vouches for, or {@link Long#MAX_VALUE}
+     * when the feed is disconnected or stale.
+     */
+    public long getTrustedSince() {
+        if (System.currentTimeMillis() - lastMessageAt > staleAfterMillis) {
+            return Long.MAX_VALUE;
+        }
+        return trustedSince;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
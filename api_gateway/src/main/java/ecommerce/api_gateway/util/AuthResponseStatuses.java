@@ -27,4 +27,8 @@ public enum AuthResponseStatuses {
      * When unexpected error occurs
      */
     UNEXPECTED_ERROR,
+    /**
+     * When the authentication service is overloaded and turned the request away
+     */
+    SERVICE_OVERLOADED,
 }
@@ -20,6 +20,15 @@ public class ServiceDestinationMapper {
         MAPPING.put("/user-details", new ServiceDestination(
                 Arrays.asList(Services.USER_SERVICE.name()),
                 Arrays.asList("CREATE_USER_DETAILS")));
+        MAPPING.put("/admin/events", new ServiceDestination(
+                Arrays.asList(Services.MONITORING_SERVICE.name()),
+                Arrays.asList("QUERY_EVENTS")));
+        MAPPING.put("/admin/permissions/reload", new ServiceDestination(
+                Arrays.asList(Services.AUTH_SERVICE.name()),
+                Arrays.asList("RELOAD_PERMISSIONS")));
+        MAPPING.put("/admin/metrics", new ServiceDestination(
+                Arrays.asList(Services.AUTH_SERVICE.name()),
+                Arrays.asList("READ_METRICS")));
     }
 
     public static ServiceDestination getMapping(String path) {
@@ -2,5 +2,6 @@ package ecommerce.api_gateway.util;
 
 public enum Services {
     AUTH_SERVICE,
-    USER_SERVICE
+    USER_SERVICE,
+    MONITORING_SERVICE
 }
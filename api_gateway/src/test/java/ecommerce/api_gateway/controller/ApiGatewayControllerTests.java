@@ -0,0 +1,78 @@
+package ecommerce.api_gateway.controller;
+
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.exceptions.RejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiGatewayControllerTests {
+
+    @Test
+    void rejectedQueryIsForbidden() {
+        assertThat(status(Flux.error(new RejectedException("No required permissions"))))
+                .isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void invalidQueryIsBadRequest() {
+        assertThat(status(Flux.error(new InvalidException("Invalid from"))))
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void otherFailuresAreServerErrors() {
+        assertThat(status(Flux.error(new ApplicationErrorException("boom"))))
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void eventsAreStreamedWithOkFromASingleSubscription() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<Map<String, Object>> events = Flux.range(1, 3)
+                .map(id -> Map.<String, Object>of("id", id))
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        ResponseEntity<Flux<Map<String, Object>>> response =
+                ApiGatewayController.toEventsResponse(events).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().map(event -> event.get("id")).collectList().block())
+                .isEqualTo(List.of(1, 2, 3));
+        assertThat(subscriptions).hasValue(1);
+    }
+
+    @Test
+    void emptyResultIsOk() {
+        ResponseEntity<Flux<Map<String, Object>>> response =
+                ApiGatewayController.toEventsResponse(Flux.empty()).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void errorAfterTheFirstEventEndsTheStream() {
+        Flux<Map<String, Object>> events = Flux.concat(
+                Flux.just(Map.<String, Object>of("id", 1)),
+                Flux.error(new ApplicationErrorException("connection lost")));
+
+        ResponseEntity<Flux<Map<String, Object>>> response =
+                ApiGatewayController.toEventsResponse(events).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().collectList().block()).hasSize(1);
+    }
+
+    private static HttpStatus status(Flux<Map<String, Object>> events) {
+        return (HttpStatus) ApiGatewayController.toEventsResponse(events).block().getStatusCode();
+    }
+}
@@ -1,12 +1,16 @@
 package ecommerce.auth_service;
 
+import ecommerce.common.config.BlockingCallDetector;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AuthServiceApplication {
 
     public static void main(String[] args) {
+        BlockingCallDetector.installIfEnabled();
         SpringApplication.run(AuthServiceApplication.class, args);
     }
 
@@ -0,0 +1,10 @@
+package ecommerce.auth_service.config;
+
+import ecommerce.common.monitoring.MonitoringClientImpl;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@Import(MonitoringClientImpl.class)
+public class MonitoringClientConfig {
+}
@@ -0,0 +1,104 @@
+package ecommerce.auth_service.controller;
+
+import ecommerce.auth_service.ProtoRequest;
+import ecommerce.auth_service.ProtoResponse;
+import ecommerce.auth_service.metrics.MetricsSource;
+import ecommerce.auth_service.security.JwtTokenProvider;
+import ecommerce.auth_service.security.PermissionMatrix;
+import ecommerce.auth_service.util.Roles;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Operator routes, reached through the gateway's /admin/permissions/reload and /admin/metrics.
+ * Each needs a service token issued to an ADMIN for AUTH_SERVICE and the route's own
+ * destination, so a token issued for another admin route or service is refused.
+ */
+@Controller
+@Slf4j
+@RequiredArgsConstructor
+@MessageMapping("auth.admin")
+public class AdminController {
+
+    private static final String AUTH_SERVICE = "AUTH_SERVICE";
+
+    public enum Destination {
+        RELOAD_PERMISSIONS,
+        READ_METRICS
+    }
+
+    private final JwtTokenProvider tokenProvider;
+
+    private final PermissionMatrix permissionMatrix;
+
+    private final List<MetricsSource> metricsSources;
+
+    @MessageMapping("reloadPermissions")
+    public Mono<ProtoResponse> reloadPermissions(ProtoRequest request) {
+        if (!isAdmin(request.getMetadataOrDefault("serviceToken", ""),
+                Destination.RELOAD_PERMISSIONS)) {
+            return Mono.just(forbidden());
+        }
+        return permissionMatrix.reload()
+                .then(Mono.fromSupplier(() -> ProtoResponse.newBuilder()
+                        .setStatusCode(200)
+                        .setStatus("OK")
+                        .setMessage("Permissions reloaded")
+                        .putData("roles", String.valueOf(permissionMatrix.getRoleCount()))
+                        .putData("permissions",
+                                String.valueOf(permissionMatrix.getPermissionCount()))
+                        .build()));
+    }
+
+    @MessageMapping("metrics")
+    public Mono<ProtoResponse> metrics(ProtoRequest request) {
+        if (!isAdmin(request.getMetadataOrDefault("serviceToken", ""),
+                Destination.READ_METRICS)) {
+            return Mono.just(forbidden());
+        }
+        ProtoResponse.Builder response = ProtoResponse.newBuilder()
+                .setStatusCode(200)
+                .setStatus("OK");
+        for (MetricsSource source : metricsSources) {
+            source.snapshot().forEach(
+                    (key, value) -> response.putData(source.getName() + "." + key, value));
+        }
+        return Mono.just(response.build());
+    }
+
+    private boolean isAdmin(String serviceToken, Destination destination) {
+        if (serviceToken.isEmpty()) {
+            return false;
+        }
+        try {
+            Claims claims = tokenProvider.getServiceTokenClaims(serviceToken);
+            List<?> services = claims.get("services", List.class);
+            List<?> destinations = claims.get("destinations", List.class);
+            if (Roles.ADMIN.name().equals(claims.get("role", String.class))
+                    && services != null && services.contains(AUTH_SERVICE)
+                    && destinations != null && destinations.contains(destination.name())) {
+                return true;
+            }
+            log.warn("Valid token with incorrect permissions for destination: {}", destination);
+            return false;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Rejected admin request: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private ProtoResponse forbidden() {
+        return ProtoResponse.newBuilder()
+                .setStatusCode(403)
+                .setStatus("Forbidden")
+                .setMessage("No required permissions")
+                .build();
+    }
+}
@@ -4,13 +4,16 @@ import ecommerce.auth_service.ProtoAuthRequest;
 import ecommerce.auth_service.ProtoAuthResponse;
 import ecommerce.auth_service.ProtoRequest;
 import ecommerce.auth_service.ProtoResponse;
+import ecommerce.auth_service.ProtoRevocation;
 import ecommerce.auth_service.security.JwtTokenProvider;
 import ecommerce.auth_service.service.AuthService;
+import ecommerce.auth_service.service.RevocationService;
 import ecommerce.auth_service.service.UserService;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Controller
@@ -24,6 +27,8 @@ public class AuthController {
 
     private final AuthService authService;
 
+    private final RevocationService revocationService;
+
     // TODO add email verification
     @MessageMapping("registerUser")
     public Mono<ProtoResponse> registerUser(ProtoRequest request) {
@@ -88,4 +93,13 @@ public class AuthController {
                         .setMessage("No required permissions")
                         .build());
     }
+
+    // Like validateToken, this route is for the gateway rather than for end users, so it relies
+    // on the RSocket server requiring a client certificate from the internal CA (client-auth:
+    // need) instead of a service token, which the gateway does not hold. The stream only carries
+    // SHA-256 digests of revoked access tokens, which cannot be turned back into tokens.
+    @MessageMapping("revocations")
+    public Flux<ProtoRevocation> revocations() {
+        return revocationService.revocations();
+    }
 }
@@ -16,13 +16,13 @@ public class RefreshToken {
     @Id
     private UUID id;
     private String userId;
-    private String refreshToken;
+    private String tokenDigest;
     private String userAgent;
     private String clientCity;
 
-    public RefreshToken(String userId, String refreshToken, String userAgent, String clientCity) {
+    public RefreshToken(String userId, String tokenDigest, String userAgent, String clientCity) {
         this.userId = userId;
-        this.refreshToken = refreshToken;
+        this.tokenDigest = tokenDigest;
         this.userAgent = userAgent;
         this.clientCity = clientCity;
     }
@@ -0,0 +1,15 @@
+package ecommerce.auth_service.dto;
+
+import ecommerce.auth_service.security.VerifiedToken;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A freshly created guest: the access token minted for it, with claims, and its session id.
+ */
+@Data
+@AllArgsConstructor
+public class GuestUserResponse {
+    private VerifiedToken accessToken;
+    private String sessionId;
+}
@@ -0,0 +1,70 @@
+package ecommerce.auth_service.metrics;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * R2DBC pool occupancy: the current figures plus peaks and averages sampled every
+ * pool-metrics.sample-interval-ms, which is what shows how long requests keep connections
+ * checked out under load. Reports nothing when the connection factory is not pooled.
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsSource {
+
+    private final PoolMetrics poolMetrics;
+
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder acquiredTotal = new LongAdder();
+    private final LongAccumulator acquiredPeak = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator pendingPeak = new LongAccumulator(Math::max, 0);
+
+    public ConnectionPoolMetrics(ConnectionFactory connectionFactory) {
+        this.poolMetrics = connectionFactory instanceof ConnectionPool pool
+                ? pool.getMetrics().orElse(null)
+                : null;
+    }
+
+    @Scheduled(fixedRateString = "${pool-metrics.sample-interval-ms:100}")
+    public void sample() {
+        if (poolMetrics == null) {
+            return;
+        }
+        int acquired = poolMetrics.acquiredSize();
+        samples.increment();
+        acquiredTotal.add(acquired);
+        acquiredPeak.accumulate(acquired);
+        pendingPeak.accumulate(poolMetrics.pendingAcquireSize());
+    }
+
+    @Override
+    public String getName() {
+        return "connectionPool";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        if (poolMetrics == null) {
+            return snapshot;
+        }
+        long sampleCount = samples.sum();
+        snapshot.put("max", String.valueOf(poolMetrics.getMaxAllocatedSize()));
+        snapshot.put("allocated", String.valueOf(poolMetrics.allocatedSize()));
+        snapshot.put("acquired", String.valueOf(poolMetrics.acquiredSize()));
+        snapshot.put("idle", String.valueOf(poolMetrics.idleSize()));
+        snapshot.put("pending", String.valueOf(poolMetrics.pendingAcquireSize()));
+        snapshot.put("acquiredAvg", sampleCount == 0 ? "0"
+                : "%.2f".formatted((double) acquiredTotal.sum() / sampleCount));
+        snapshot.put("acquiredPeak", String.valueOf(acquiredPeak.get()));
+        snapshot.put("pendingPeak", String.valueOf(pendingPeak.get()));
+        return snapshot;
+    }
+}
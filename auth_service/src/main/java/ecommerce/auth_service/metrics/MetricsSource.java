@@ -0,0 +1,16 @@
+package ecommerce.auth_service.metrics;
+
+import java.util.Map;
+
+/**
+ * A component that exposes counters through the auth.admin.metrics route.
+ */
+public interface MetricsSource {
+
+    /**
+     * Prefix for this source's keys in the metrics response.
+     */
+    public String getName();
+
+    public Map<String, String> snapshot();
+}
@@ -0,0 +1,27 @@
+package ecommerce.auth_service.metrics;
+
+import ecommerce.common.monitoring.MonitoringClientImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * The shared monitoring client's queue, send and spool counters.
+ */
+@Component
+@RequiredArgsConstructor
+public class MonitoringClientMetrics implements MetricsSource {
+
+    private final MonitoringClientImpl monitoringClient;
+
+    @Override
+    public String getName() {
+        return "monitoringClient";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        return monitoringClient.snapshot();
+    }
+}
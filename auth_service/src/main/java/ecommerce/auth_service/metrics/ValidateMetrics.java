@@ -0,0 +1,102 @@
+package ecommerce.auth_service.metrics;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Counts auth.validateToken outcomes and how long each one held a database connection.
+ * <p>
+ * {@link #trace(Mono, Function)} opens a per-request accumulator in the Reactor context; database calls
+ * wrapped with {@link #holdingConnection(Mono)} add their duration to it. Calls outside a traced
+ * validation are not measured.
+ */
+@Component
+public class ValidateMetrics implements MetricsSource {
+
+    public enum Outcome {
+        VALID,
+        REFRESHED,
+        GUEST,
+        REJECTED
+    }
+
+    private static final String CONNECTION_NANOS =
+            ValidateMetrics.class.getName() + ".connectionNanos";
+
+    private final Map<Outcome, OutcomeStats> stats = new EnumMap<>(Outcome.class);
+
+    public ValidateMetrics() {
+        for (Outcome outcome : Outcome.values()) {
+            stats.put(outcome, new OutcomeStats());
+        }
+    }
+
+    public <T> Mono<T> holdingConnection(Mono<T> databaseCall) {
+        return Mono.deferContextual(context -> {
+            AtomicLong connectionNanos = context.getOrDefault(CONNECTION_NANOS, null);
+            if (connectionNanos == null) {
+                return databaseCall;
+            }
+            long start = System.nanoTime();
+            return databaseCall.doFinally(
+                    signal -> connectionNanos.addAndGet(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Records the outcome chosen by classifier together with the connection time accumulated
+     * while validation ran.
+     */
+    public <T> Mono<T> trace(Mono<T> validation, Function<T, Outcome> classifier) {
+        AtomicLong connectionNanos = new AtomicLong();
+        return validation
+                .doOnNext(result -> record(classifier.apply(result), connectionNanos.get()))
+                .contextWrite(Context.of(CONNECTION_NANOS, connectionNanos));
+    }
+
+    private void record(Outcome outcome, long connectionNanos) {
+        OutcomeStats outcomeStats = stats.get(outcome);
+        outcomeStats.count.increment();
+        outcomeStats.connectionNanosTotal.add(connectionNanos);
+        outcomeStats.connectionNanosMax.accumulate(connectionNanos);
+    }
+
+    @Override
+    public String getName() {
+        return "validate";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        stats.forEach((outcome, outcomeStats) -> {
+            String prefix = outcome.name().toLowerCase();
+            long count = outcomeStats.count.sum();
+            long totalNanos = outcomeStats.connectionNanosTotal.sum();
+            snapshot.put(prefix + ".count", String.valueOf(count));
+            snapshot.put(prefix + ".connectionHoldMsTotal",
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis(totalNanos)));
+            snapshot.put(prefix + ".connectionHoldMsAvg", count == 0 ? "0"
+                    : "%.3f".formatted(totalNanos / 1_000_000.0 / count));
+            snapshot.put(prefix + ".connectionHoldMsMax", "%.3f".formatted(
+                    outcomeStats.connectionNanosMax.get() / 1_000_000.0));
+        });
+        return snapshot;
+    }
+
+    private static final class OutcomeStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder connectionNanosTotal = new LongAdder();
+        private final LongAccumulator connectionNanosMax = new LongAccumulator(Long::max, 0);
+    }
+}
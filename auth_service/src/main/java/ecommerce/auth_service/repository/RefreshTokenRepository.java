@@ -1,6 +1,8 @@
 package ecommerce.auth_service.repository;
 
 import ecommerce.auth_service.domain.RefreshToken;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
@@ -8,12 +10,25 @@ import reactor.core.publisher.Mono;
 @Repository
 public interface RefreshTokenRepository extends ReactiveCrudRepository<RefreshToken, String> {
 
-    Mono<RefreshToken> findByUserId(String userId);
+    Mono<RefreshToken> findByTokenDigest(String tokenDigest);
 
-    Mono<RefreshToken> findByRefreshToken(String refreshToken);
-
-    Mono<RefreshToken> findByUserIdAndUserAgentAndClientCity(String userId, String userAgent,
+    @Query("INSERT INTO refresh_tokens (user_id, token_digest, user_agent, client_city) " +
+            "VALUES (:userId, :tokenDigest, :userAgent, :clientCity) " +
+            "ON CONFLICT ON CONSTRAINT uq_refresh_tokens_device " +
+            "DO UPDATE SET token_digest = EXCLUDED.token_digest " +
+            "RETURNING *")
+    Mono<RefreshToken> upsertForDevice(String userId, String tokenDigest, String userAgent,
             String clientCity);
 
-    Mono<Void> deleteByRefreshToken(String refreshToken);
+    /**
+     * Replaces a digest only if it is still current, so a refresh token can be rotated once.
+     */
+    @Query("UPDATE refresh_tokens SET token_digest = :newTokenDigest " +
+            "WHERE token_digest = :oldTokenDigest " +
+            "RETURNING *")
+    Mono<RefreshToken> rotate(String oldTokenDigest, String newTokenDigest);
+
+    @Modifying
+    @Query("DELETE FROM refresh_tokens WHERE token_digest = :tokenDigest")
+    Mono<Integer> deleteByTokenDigest(String tokenDigest);
 }
@@ -1,29 +1,69 @@
 package ecommerce.auth_service.repository;
 
 import ecommerce.auth_service.domain.Session;
+import ecommerce.auth_service.security.CryptoScheduler;
+import ecommerce.auth_service.security.HmacDigester;
+import ecommerce.auth_service.security.VerifiedToken;
+import ecommerce.auth_service.service.RevocationService;
+import io.jsonwebtoken.Jwts;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Repository
 @RequiredArgsConstructor
 public class SessionRepository {
 
+    private static final String SESSION_INDEX_PREFIX = "session-index:";
+
+    private static final Duration SESSION_TTL = Duration.ofHours(24);
+
+    private static final RedisScript<Long> CREATE_SESSION = RedisScript.of(
+            new ClassPathResource("scripts/create_session.lua"), Long.class);
+
+    private static final RedisScript<Long> DELETE_SESSION = RedisScript.of(
+            new ClassPathResource("scripts/delete_session.lua"), Long.class);
+
+    private static final RedisScript<String> DELETE_BY_SESSION_ID = RedisScript.of(
+            new ClassPathResource("scripts/delete_by_session_id.lua"), String.class);
+
+    private static final RedisScript<String> VALIDATE_AND_TOUCH = RedisScript.of(
+            new ClassPathResource("scripts/validate_and_touch.lua"), String.class);
+
+    private static final RedisScript<String> INVALIDATE_PAIR = RedisScript.of(
+            new ClassPathResource("scripts/invalidate_pair.lua"), String.class);
+
+    private static final RedisScript<String> RESOLVE_AND_TOUCH = RedisScript.of(
+            new ClassPathResource("scripts/resolve_and_touch.lua"), String.class);
+
     private final ReactiveRedisTemplate<String, String> redisTemplate;
 
     private final BCryptPasswordEncoder passwordEncoder;
 
+    @Qualifier("sessionDigester")
+    private final HmacDigester sessionDigester;
+
+    private final RevocationService revocationService;
+
+    private final CryptoScheduler cryptoScheduler;
+
     private String hashAccessToken(String accessToken) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -34,21 +74,31 @@ public class SessionRepository {
         }
     }
 
-    public Mono<Session> saveSession(String accessToken) {
-        if (accessToken == null || accessToken.isEmpty()) {
+    private String indexKey(String sessionIdDigest) {
+        return SESSION_INDEX_PREFIX + sessionIdDigest;
+    }
+
+    /**
+     * Stores a new session for the access token together with the token's user id, role and
+     * expiry, which is all an opaque access token resolves to.
+     */
+    public Mono<Session> saveSession(VerifiedToken accessToken) {
+        if (accessToken == null || accessToken.token().isEmpty()) {
             return Mono.empty();
         }
         String sessionId = UUID.randomUUID().toString();
-        Session session = new Session(accessToken, sessionId);
-
-        String key = hashAccessToken(accessToken);
-
-        return Mono.fromCallable(() -> passwordEncoder.encode(sessionId))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(hashedSessionId -> redisTemplate.opsForHash()
-                        .put(key, "sessionId", hashedSessionId)
-                        .then(redisTemplate.expire(key, Duration.ofHours(24)))
-                        .thenReturn(session))
+        Session session = new Session(accessToken.token(), sessionId);
+
+        String key = hashAccessToken(accessToken.token());
+        String sessionIdDigest = sessionDigester.digest(sessionId);
+
+        return redisTemplate.execute(CREATE_SESSION, List.of(key, indexKey(sessionIdDigest)),
+                        List.of(sessionIdDigest,
+                                String.valueOf(SESSION_TTL.toSeconds()),
+                                Objects.toString(accessToken.subject(), ""),
+                                Objects.toString(accessToken.role(), ""),
+                                String.valueOf(accessToken.expiresAt().getTime())))
+                .then(Mono.just(session))
                 .onErrorResume(e -> Mono.error(new RuntimeException("Failed to save session", e)));
     }
 
@@ -73,9 +123,13 @@ public class SessionRepository {
 
         String key = hashAccessToken(accessToken);
 
-        return redisTemplate.opsForHash()
-                .remove(key, "sessionId")
+        return redisTemplate.execute(DELETE_SESSION, List.of(key), List.of(SESSION_INDEX_PREFIX))
+                .next()
                 .map(deletedCount -> deletedCount > 0)
+                .defaultIfEmpty(false)
+                .flatMap(deleted -> deleted
+                        ? revocationService.revoke(key).thenReturn(true)
+                        : Mono.just(false))
                 .onErrorResume(
                         e -> Mono.error(new RuntimeException("Failed to delete session", e)));
     }
@@ -87,35 +141,96 @@ public class SessionRepository {
 
         String key = hashAccessToken(accessToken);
 
-        return redisTemplate.opsForHash()
-                .get(key, "sessionId")
-                .map(storedSessionId -> {
-                    return Mono.fromCallable(
-                                    () -> passwordEncoder.matches(sessionId, storedSessionId.toString()))
-                            .subscribeOn(Schedulers.boundedElastic());
+        return redisTemplate.execute(VALIDATE_AND_TOUCH, List.of(key),
+                        List.of(sessionDigester.digest(sessionId),
+                                String.valueOf(System.currentTimeMillis())))
+                .next()
+                .flatMap(result -> switch (result) {
+                    case "1" -> Mono.just(true);
+                    case "0" -> Mono.just(false);
+                    default -> matchesLegacySessionId(sessionId, result);
                 })
-                .flatMap(resultMono -> resultMono)
                 .defaultIfEmpty(false)
                 .onErrorResume(
                         e -> Mono.error(new RuntimeException("Failed to validate session", e)));
     }
 
+    /**
+     * Resolves an opaque access token to its claims when the session id belongs to it. Empty
+     * when the session is unknown, expired or owned by another session id.
+     */
+    public Mono<VerifiedToken> resolveSession(String accessToken, String sessionId) {
+        if (accessToken == null || sessionId == null || accessToken.isEmpty() || sessionId.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return redisTemplate.execute(RESOLVE_AND_TOUCH, List.of(hashAccessToken(accessToken)),
+                        List.of(sessionDigester.digest(sessionId),
+                                String.valueOf(System.currentTimeMillis())))
+                .next()
+                .filter(result -> result.startsWith("1 "))
+                .map(result -> {
+                    String[] fields = result.split(" ");
+                    return new VerifiedToken(accessToken, Jwts.claims()
+                            .subject(fields[1])
+                            .add("role", fields[2])
+                            .expiration(new Date(Long.parseLong(fields[3])))
+                            .build());
+                })
+                .onErrorResume(
+                        e -> Mono.error(new RuntimeException("Failed to resolve session", e)));
+    }
+
+    /**
+     * Deletes the session of the access token and the session the session id belongs to in a
+     * single round trip. Used when the presented pair does not belong together.
+     */
+    public Mono<Boolean> invalidatePair(String accessToken, String sessionId) {
+        if (accessToken == null || sessionId == null || accessToken.isEmpty() || sessionId.isEmpty()) {
+            return Mono.just(false);
+        }
+
+        String key = hashAccessToken(accessToken);
+
+        return redisTemplate.execute(INVALIDATE_PAIR,
+                        List.of(key, indexKey(sessionDigester.digest(sessionId))),
+                        List.of(SESSION_INDEX_PREFIX))
+                .next()
+                .flatMap(deletedKeys -> {
+                    if (deletedKeys.isEmpty()) {
+                        return Mono.just(false);
+                    }
+                    return Flux.fromArray(deletedKeys.split(" "))
+                            .concatMap(revocationService::revoke)
+                            .then(Mono.just(true));
+                })
+                .defaultIfEmpty(false)
+                .onErrorResume(
+                        e -> Mono.error(new RuntimeException("Failed to invalidate session pair", e)));
+    }
+
     public Mono<Boolean> deleteBySessionId(String sessionId) {
         if (sessionId == null || sessionId.isEmpty()) {
             return Mono.just(true);
         }
 
-        return redisTemplate.keys("session:*")
-                .flatMap(key -> redisTemplate.opsForHash().get(key, "sessionId")
-                        .filter(storedSessionId -> passwordEncoder.matches(sessionId,
-                                storedSessionId.toString()))
-                        .flatMap(storedSessionId -> redisTemplate.opsForHash()
-                                .remove(key, "sessionId")
-                                .map(deletedCount -> deletedCount > 0)))
-                .hasElements()
+        // Legacy bcrypt sessions have no index entry; they are left to expire with their TTL
+        return redisTemplate.execute(DELETE_BY_SESSION_ID,
+                        List.of(indexKey(sessionDigester.digest(sessionId))))
+                .next()
+                .flatMap(deletedKey -> revocationService.revoke(deletedKey).thenReturn(true))
                 .defaultIfEmpty(false)
                 .onErrorResume(e -> Mono.error(
                         new RuntimeException("Failed to delete session by sessionId", e)));
     }
 
+    /**
+     * Sessions written before the switch to HMAC digests hold a bcrypt hash. Those are still
+     * accepted until they expire with their 24h TTL; only they pay for a bcrypt comparison.
+     */
+    private Mono<Boolean> matchesLegacySessionId(String sessionId, String storedHash) {
+        return cryptoScheduler.submit(CryptoScheduler.Priority.VALIDATION,
+                () -> passwordEncoder.matches(sessionId, storedHash));
+    }
+
 }
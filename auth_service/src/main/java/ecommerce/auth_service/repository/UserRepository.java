@@ -2,6 +2,8 @@ package ecommerce.auth_service.repository;
 
 import ecommerce.auth_service.domain.User;
 import ecommerce.auth_service.dto.UserDTO;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Mono;
 
@@ -13,4 +15,22 @@ public interface UserRepository extends ReactiveCrudRepository<User, String> {
 
     Mono<User> findUserByEmail(String email);
 
+    /**
+     * Inserts the user unless the email is taken, in one statement; empty when it is taken.
+     */
+    @Query("INSERT INTO users (user_id, email, password, role_name) " +
+            "VALUES (:userId, :email, :password, :roleName) " +
+            "ON CONFLICT (email) DO NOTHING " +
+            "RETURNING *")
+    Mono<User> insertIfEmailAvailable(String userId, String email, String password,
+            String roleName);
+
+    /**
+     * Replaces a password hash only if it is still the one that was just verified, so a rehash
+     * never overwrites a concurrent password change.
+     */
+    @Modifying
+    @Query("UPDATE users SET password = :newHash WHERE user_id = :userId AND password = :oldHash")
+    Mono<Integer> upgradePasswordHash(String userId, String oldHash, String newHash);
+
 }
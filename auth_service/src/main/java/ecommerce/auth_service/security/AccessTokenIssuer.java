@@ -0,0 +1,68 @@
+package ecommerce.auth_service.security;
+
+import io.jsonwebtoken.Jwts;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Issues access tokens in the configured format. JWT tokens are self-contained and signed.
+ * OPAQUE tokens are 128-bit random handles; their user id, role and expiry live only in the
+ * session store, so validating one needs no signature check and deleting the session revokes it
+ * at once.
+ * <p>
+ * Both formats are accepted whatever the setting, so switching only affects newly issued tokens.
+ */
+@Component
+@Slf4j
+public class AccessTokenIssuer {
+
+    public enum Format {
+        JWT,
+        OPAQUE
+    }
+
+    public static final String OPAQUE_PREFIX = "o.";
+
+    private static final int HANDLE_BYTES = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final Format format;
+    private final long accessTokenExpiration;
+
+    public AccessTokenIssuer(JwtTokenProvider jwtTokenProvider,
+            @Value("${access-token.format:JWT}") Format format,
+            @Value("${jwt.access.expiration}") long accessTokenExpiration) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.format = format;
+        this.accessTokenExpiration = accessTokenExpiration;
+        log.info("Issuing {} access tokens", format);
+    }
+
+    public static boolean isOpaque(String accessToken) {
+        return accessToken.startsWith(OPAQUE_PREFIX);
+    }
+
+    public VerifiedToken issue(String userId, String roleName) {
+        if (format == Format.JWT) {
+            return jwtTokenProvider.issueAccessToken(userId, roleName);
+        }
+        byte[] handle = new byte[HANDLE_BYTES];
+        random.nextBytes(handle);
+        Date now = new Date();
+        return new VerifiedToken(
+                OPAQUE_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(handle),
+                Jwts.claims()
+                        .subject(userId)
+                        .add("role", roleName)
+                        .issuedAt(now)
+                        .expiration(new Date(now.getTime() + accessTokenExpiration))
+                        .build());
+    }
+}
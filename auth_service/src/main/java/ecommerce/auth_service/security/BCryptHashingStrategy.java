@@ -0,0 +1,80 @@
+package ecommerce.auth_service.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * bcrypt; the cost is the log2 round count embedded in the hash ($2a$10$...).
+ */
+@Component
+public class BCryptHashingStrategy implements PasswordHashingStrategy {
+
+    // The strength BCryptPasswordEncoder defaults to, which hashes were stored with before
+    private static final int MINIMUM_COST = 10;
+    private static final int MAXIMUM_COST = 31;
+    // $2a$10$ followed by 22 characters of salt and 31 of hash
+    private static final int HASH_LENGTH = 60;
+
+    private final Map<Integer, BCryptPasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+    @Override
+    public String getId() {
+        return "bcrypt";
+    }
+
+    @Override
+    public List<Integer> candidateCosts() {
+        return List.of(10, 11, 12, 13, 14);
+    }
+
+    @Override
+    public int minimumCost() {
+        return MINIMUM_COST;
+    }
+
+    @Override
+    public boolean recognizes(String storedHash) {
+        return storedHash.startsWith("$2a$") || storedHash.startsWith("$2b$")
+                || storedHash.startsWith("$2y$");
+    }
+
+    @Override
+    public int costOf(String storedHash) {
+        if (storedHash.length() != HASH_LENGTH || storedHash.charAt(6) != '$') {
+            return 0;
+        }
+        try {
+            int cost = Integer.parseInt(storedHash.substring(4, 6));
+            return cost >= 4 && cost <= MAXIMUM_COST ? cost : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String hash(String rawPassword, int cost) {
+        return encoder(cost).encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String storedHash) {
+        // The cost is read from the hash, so any instance verifies any cost
+        int cost = costOf(storedHash);
+        if (cost == 0) {
+            return false;
+        }
+        try {
+            return encoder(cost).matches(rawPassword, storedHash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private BCryptPasswordEncoder encoder(int cost) {
+        return encoders.computeIfAbsent(cost, BCryptPasswordEncoder::new);
+    }
+}
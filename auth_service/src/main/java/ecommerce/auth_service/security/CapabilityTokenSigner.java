@@ -0,0 +1,85 @@
+package ecommerce.auth_service.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Mints compact capability tokens for a single downstream service, MACed with a key only that
+ * service shares. Layout before base64url encoding:
+ * <pre>
+ * version (1) | expiresAt epoch seconds (8) | destination bitmask (8) |
+ * userId length (1) | userId UTF-8 | HMAC-SHA256 truncated to 16 bytes
+ * </pre>
+ * Destination bit i is the i-th entry of the configured destination list, which must follow
+ * the order of the receiving service's destination enum.
+ */
+public class CapabilityTokenSigner {
+
+    public static final String PREFIX = "cap1.";
+
+    static final byte VERSION = 1;
+    static final int MAC_LENGTH = 16;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final List<String> destinations;
+    private final ThreadLocal<Mac> mac;
+
+    public CapabilityTokenSigner(String base64Key, List<String> destinations) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("Capability key must be at least 256 bits");
+        }
+        if (destinations.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most 64 destinations fit in the bitmask");
+        }
+        SecretKeySpec key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.destinations = List.copyOf(destinations);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * @return the destination bitmask, or 0 when any destination is unknown to this service
+     */
+    public long mask(List<String> requested) {
+        long mask = 0;
+        for (String destination : requested) {
+            int bit = destinations.indexOf(destination);
+            if (bit < 0) {
+                return 0;
+            }
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    public String sign(String userId, long mask, long expiresAtMillis) {
+        byte[] userIdBytes = userId.getBytes(StandardCharsets.UTF_8);
+        if (userIdBytes.length > 255) {
+            throw new IllegalArgumentException("userId too long for a capability token");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(18 + userIdBytes.length + MAC_LENGTH);
+        buffer.put(VERSION)
+                .putLong(expiresAtMillis / 1000)
+                .putLong(mask)
+                .put((byte) userIdBytes.length)
+                .put(userIdBytes);
+        Mac instance = mac.get();
+        instance.update(buffer.array(), 0, buffer.position());
+        buffer.put(instance.doFinal(), 0, MAC_LENGTH);
+        return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
@@ -0,0 +1,11 @@
+package ecommerce.auth_service.security;
+
+/**
+ * Raised when {@link CryptoScheduler} has no room left in its queue.
+ */
+public class CryptoOverloadedException extends RuntimeException {
+
+    public CryptoOverloadedException(String message) {
+        super(message);
+    }
+}
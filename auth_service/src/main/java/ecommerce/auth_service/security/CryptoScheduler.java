@@ -0,0 +1,165 @@
+package ecommerce.auth_service.security;
+
+import ecommerce.auth_service.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs CPU-bound crypto (password hashing, token signing, legacy session hash checks) on a
+ * fixed pool sized to the cores instead of boundedElastic, which would let a login spike run
+ * ten threads per core. Waiting tasks are ordered by {@link Priority} and then by arrival, so
+ * validation work overtakes queued password hashes.
+ * <p>
+ * At most queue-capacity tasks may wait. Beyond that a submission fails at once with
+ * {@link CryptoOverloadedException}, which callers turn into a 503 instead of letting every
+ * request slow down. Background tasks are refused once half of that is taken, so they never
+ * use room a request needs.
+ */
+@Component
+@Slf4j
+public class CryptoScheduler implements MetricsSource {
+
+    public enum Priority {
+        VALIDATION,
+        SIGNING,
+        PASSWORD_HASHING,
+        /**
+         * Work no request waits for, such as upgrading a stored password hash after a login.
+         * Only admitted while the queue is at most half full.
+         */
+        BACKGROUND
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Priority, PriorityStats> stats = new EnumMap<>(Priority.class);
+
+    public CryptoScheduler(@Value("${crypto-scheduler.threads:0}") int threads,
+            @Value("${crypto-scheduler.queue-capacity:1024}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "crypto-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueCapacity = queueCapacity;
+        for (Priority priority : Priority.values()) {
+            stats.put(priority, new PriorityStats());
+        }
+        log.info("Crypto scheduler: threads={} queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs task on the crypto pool. Errors with {@link CryptoOverloadedException} without
+     * queueing when queue-capacity tasks are already waiting; a task whose subscriber cancels
+     * before it starts is skipped.
+     */
+    public <T> Mono<T> submit(Priority priority, Callable<T> task) {
+        return Mono.create(sink -> {
+            PriorityStats priorityStats = stats.get(priority);
+            int capacity = priority == Priority.BACKGROUND ? queueCapacity / 2 : queueCapacity;
+            if (waiting.incrementAndGet() > capacity) {
+                waiting.decrementAndGet();
+                priorityStats.rejected.increment();
+                sink.error(new CryptoOverloadedException(
+                        "Crypto queue full (" + capacity + " waiting)"));
+                return;
+            }
+            AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onCancel(() -> cancelled.set(true));
+            long enqueuedAt = System.nanoTime();
+            executor.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), () -> {
+                waiting.decrementAndGet();
+                long waitNanos = System.nanoTime() - enqueuedAt;
+                priorityStats.waitNanosTotal.add(waitNanos);
+                priorityStats.waitNanosMax.accumulate(waitNanos);
+                if (cancelled.get()) {
+                    priorityStats.cancelled.increment();
+                    return;
+                }
+                priorityStats.completed.increment();
+                try {
+                    sink.success(task.call());
+                } catch (Throwable e) {
+                    sink.error(e);
+                }
+            }));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String getName() {
+        return "cryptoScheduler";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("threads", String.valueOf(executor.getMaximumPoolSize()));
+        snapshot.put("active", String.valueOf(executor.getActiveCount()));
+        snapshot.put("queueDepth", String.valueOf(waiting.get()));
+        snapshot.put("queueCapacity", String.valueOf(queueCapacity));
+        stats.forEach((priority, priorityStats) -> {
+            String prefix = priority.name().toLowerCase() + ".";
+            long completed = priorityStats.completed.sum();
+            long started = completed + priorityStats.cancelled.sum();
+            snapshot.put(prefix + "completed", String.valueOf(completed));
+            snapshot.put(prefix + "cancelled", String.valueOf(priorityStats.cancelled.sum()));
+            snapshot.put(prefix + "rejected", String.valueOf(priorityStats.rejected.sum()));
+            snapshot.put(prefix + "waitMillisAvg", started == 0 ? "0"
+                    : "%.3f".formatted(priorityStats.waitNanosTotal.sum() / 1e6 / started));
+            snapshot.put(prefix + "waitMillisMax",
+                    "%.3f".formatted(priorityStats.waitNanosMax.get() / 1e6));
+        });
+        return snapshot;
+    }
+
+    private record PrioritizedTask(Priority priority, long sequence, Runnable body)
+            implements Runnable, Comparable<PrioritizedTask> {
+
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class PriorityStats {
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waitNanosTotal = new LongAdder();
+        private final LongAccumulator waitNanosMax = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,62 @@
+package ecommerce.auth_service.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Keyed HMAC-SHA256 digests for high-entropy secrets such as session ids and refresh tokens.
+ * These values are random, so a fast keyed digest is as strong as a slow password hash while
+ * costing microseconds instead of milliseconds.
+ */
+public class HmacDigester {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public HmacDigester(String base64Key) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("HMAC key must be at least 256 bits");
+        }
+        SecretKeySpec key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public String digest(String value) {
+        return Base64.getEncoder().encodeToString(rawDigest(value));
+    }
+
+    /**
+     * Constant-time comparison of value's digest with a stored digest.
+     */
+    public boolean matches(String value, String storedDigest) {
+        if (value == null || storedDigest == null) {
+            return false;
+        }
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(storedDigest);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(rawDigest(value), expected);
+    }
+
+    private byte[] rawDigest(String value) {
+        // doFinal resets the Mac, so the thread's instance is ready for the next call
+        return mac.get().doFinal(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,32 @@
+package ecommerce.auth_service.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+/**
+ * Signature algorithms a token type can be configured with. ED25519 and ES256 sign far faster
+ * than RS512 and produce 86-character signatures instead of 683, which matters because every
+ * token travels in a cookie on each request. Verifying them is slower than verifying RS512;
+ * JwtAlgorithmBenchmark measures both.
+ */
+public enum JwtAlgorithm {
+    RS512("RSA", Jwts.SIG.RS512),
+    ES256("EC", Jwts.SIG.ES256),
+    ED25519("Ed25519", Jwts.SIG.EdDSA);
+
+    private final String keyFactoryAlgorithm;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    JwtAlgorithm(String keyFactoryAlgorithm, SignatureAlgorithm signatureAlgorithm) {
+        this.keyFactoryAlgorithm = keyFactoryAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public String getKeyFactoryAlgorithm() {
+        return keyFactoryAlgorithm;
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+}
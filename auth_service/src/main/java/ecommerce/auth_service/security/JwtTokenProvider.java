@@ -3,32 +3,23 @@ package ecommerce.auth_service.security;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @Slf4j
 public class JwtTokenProvider {
 
-    private final PrivateKey accessTokenPrivateKey;
-    private final PublicKey accessTokenPublicKey;
-
-    private final PrivateKey serviceTokenPrivateKey;
-    private final PublicKey serviceTokenPublicKey;
-
-    private final PrivateKey refreshTokenPrivateKey;
-    private final PublicKey refreshTokenPublicKey;
+    private final Signer accessTokenSigner;
+    private final Signer refreshTokenSigner;
+    private final Signer serviceTokenSigner;
 
     private final long accessTokenExpiration;
 
@@ -36,130 +27,161 @@ public class JwtTokenProvider {
 
     private final long serviceTokenExpiration;
 
+    // Parsers are immutable and thread-safe, so one per token type is built up front
+    private final JwtParser accessTokenParser;
+    private final JwtParser refreshTokenParser;
+    private final JwtParser serviceTokenParser;
+
     public JwtTokenProvider(
             @Value("${jwt.access.private.key}") String accessPrivateKeyStr,
             @Value("${jwt.access.public.key}") String accessPublicKeyStr,
+            @Value("${jwt.access.algorithm:RS512}") JwtAlgorithm accessAlgorithm,
+            @Value("${jwt.access.additional-public-keys:}") String accessAdditionalKeys,
             @Value("${jwt.refresh.private.key}") String refreshPrivateKeyStr,
             @Value("${jwt.refresh.public.key}") String refreshPublicKeyStr,
+            @Value("${jwt.refresh.algorithm:RS512}") JwtAlgorithm refreshAlgorithm,
+            @Value("${jwt.refresh.additional-public-keys:}") String refreshAdditionalKeys,
             @Value("${jwt.service.private.key}") String servicePrivateKeyStr,
             @Value("${jwt.service.public.key}") String servicePublicKeyStr,
+            @Value("${jwt.service.algorithm:RS512}") JwtAlgorithm serviceAlgorithm,
+            @Value("${jwt.service.additional-public-keys:}") String serviceAdditionalKeys,
             @Value("${jwt.access.expiration}") long accessTokenExpiration,
             @Value("${jwt.refresh.expiration}") long refreshTokenExpiration,
             @Value("${jwt.service.expiration}") long serviceTokenExpiration) throws Exception {
-        this.accessTokenPrivateKey = getPrivateKeyFromString(accessPrivateKeyStr);
-        this.accessTokenPublicKey = getPublicKeyFromString(accessPublicKeyStr);
-        this.refreshTokenPrivateKey = getPrivateKeyFromString(refreshPrivateKeyStr);
-        this.refreshTokenPublicKey = getPublicKeyFromString(refreshPublicKeyStr);
-        this.serviceTokenPrivateKey = getPrivateKeyFromString(servicePrivateKeyStr);
-        this.serviceTokenPublicKey = getPublicKeyFromString(servicePublicKeyStr);
+        this.accessTokenSigner = new Signer(accessPrivateKeyStr, accessPublicKeyStr,
+                accessAlgorithm);
+        this.refreshTokenSigner = new Signer(refreshPrivateKeyStr, refreshPublicKeyStr,
+                refreshAlgorithm);
+        this.serviceTokenSigner = new Signer(servicePrivateKeyStr, servicePublicKeyStr,
+                serviceAlgorithm);
         this.accessTokenExpiration = accessTokenExpiration;
         this.refreshTokenExpiration = refreshTokenExpiration;
         this.serviceTokenExpiration = serviceTokenExpiration;
+        this.accessTokenParser = buildParser(accessPublicKeyStr, accessAdditionalKeys);
+        this.refreshTokenParser = buildParser(refreshPublicKeyStr, refreshAdditionalKeys);
+        this.serviceTokenParser = buildParser(servicePublicKeyStr, serviceAdditionalKeys);
+        log.info("Signing access tokens with {}, refresh tokens with {}, service tokens with {}",
+                accessAlgorithm, refreshAlgorithm, serviceAlgorithm);
     }
 
-    private PrivateKey getPrivateKeyFromString(String key) throws Exception {
-        byte[] keyBytes = Base64.getDecoder().decode(key);
-        PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(keyBytes);
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        return kf.generatePrivate(spec);
-    }
-
-    private PublicKey getPublicKeyFromString(String key) throws Exception {
-        byte[] keyBytes = Base64.getDecoder().decode(key);
-        X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        return kf.generatePublic(spec);
+    private JwtParser buildParser(String publicKey, String additionalKeys) throws Exception {
+        Map<String, PublicKey> keys = JwtKeys.keyRing(publicKey, additionalKeys);
+        return Jwts.parser()
+                .keyLocator(JwtKeys.locator(keys, JwtKeys.parsePublicKey(publicKey)))
+                .clockSkewSeconds(60)
+                .build();
     }
 
     public String createAccessToken(String userId, String roleName) {
-        Claims claims = Jwts.claims().setSubject(userId);
-        claims.put("role", roleName);
-
-        Date now = new Date();
-        Date validity = new Date(now.getTime() + accessTokenExpiration);
+        return issueAccessToken(userId, roleName).token();
+    }
 
-        return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(validity)
-                .signWith(accessTokenPrivateKey, SignatureAlgorithm.RS512)
-                .compact();
+    /**
+     * Signs an access token and returns it with the claims it was built from, so callers that
+     * mint a token never have to parse it back.
+     */
+    public VerifiedToken issueAccessToken(String userId, String roleName) {
+        return issue(userId, roleName, accessTokenExpiration, accessTokenSigner);
     }
 
     public String createServiceToken(String userId, String roleName, List<String> services,
             List<String> destinations) {
-        Claims claims = Jwts.claims().setSubject(userId);
-        claims.put("role", roleName);
-        claims.put("services", services);
-        claims.put("destinations", destinations);
-
         Date now = new Date();
-        Date validity = new Date(now.getTime() + serviceTokenExpiration);
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(validity)
-                .signWith(serviceTokenPrivateKey, SignatureAlgorithm.RS512)
-                .compact();
+        Claims claims = Jwts.claims()
+                .subject(userId)
+                .add("role", roleName)
+                .add("services", services)
+                .add("destinations", destinations)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + serviceTokenExpiration))
+                .build();
+        return sign(claims, serviceTokenSigner);
     }
 
     public String createRefreshToken(String userId, String roleName) {
-        Claims claims = Jwts.claims().setSubject(userId);
-        claims.put("role", roleName);
+        return issueRefreshToken(userId, roleName).token();
+    }
+
+    public VerifiedToken issueRefreshToken(String userId, String roleName) {
+        return issue(userId, roleName, refreshTokenExpiration, refreshTokenSigner);
+    }
 
+    private VerifiedToken issue(String userId, String roleName, long expiration, Signer signer) {
         Date now = new Date();
-        Date validity = new Date(now.getTime() + refreshTokenExpiration);
+        Claims claims = Jwts.claims()
+                .subject(userId)
+                .add("role", roleName)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + expiration))
+                .build();
+        return new VerifiedToken(sign(claims, signer), claims);
+    }
 
+    private String sign(Claims claims, Signer signer) {
         return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(validity)
-                .signWith(refreshTokenPrivateKey, SignatureAlgorithm.RS512)
+                .header().keyId(signer.keyId()).and()
+                .claims(claims)
+                .signWith(signer.privateKey(), signer.algorithm().getSignatureAlgorithm())
                 .compact();
     }
 
     public boolean validateAccessToken(String token) {
-        return validateToken(token, accessTokenPublicKey);
+        return validateToken(token, accessTokenParser);
     }
 
     public boolean validateRefreshToken(String token) {
-        return validateToken(token, refreshTokenPublicKey);
+        return validateToken(token, refreshTokenParser);
     }
 
     public boolean validateServiceToken(String token) {
-        return validateToken(token, serviceTokenPublicKey);
+        return validateToken(token, serviceTokenParser);
     }
 
-    private boolean validateToken(String token, PublicKey publicKey) {
+    private boolean validateToken(String token, JwtParser jwtParser) {
         if (token == null || token.isEmpty()) {
             return false;
         }
-        JwtParser jwtParser = Jwts.parserBuilder()
-                .setSigningKey(publicKey)
-                .setAllowedClockSkewSeconds(60)
-                .build();
-        jwtParser.parseClaimsJws(token);
+        jwtParser.parseSignedClaims(token);
         return true;
     }
 
-    private Claims getClaims(String token, PublicKey publicKey) {
-        JwtParser jwtParser = Jwts.parserBuilder()
-                .setSigningKey(publicKey)
-                .build();
-        return jwtParser.parseClaimsJws(token).getBody();
+    /**
+     * Verifies the signature and expiry once and keeps the claims. Throws a JwtException for
+     * invalid tokens and IllegalArgumentException for blank ones.
+     */
+    public VerifiedToken verifyAccessToken(String token) {
+        return verify(token, accessTokenParser);
+    }
+
+    public VerifiedToken verifyRefreshToken(String token) {
+        return verify(token, refreshTokenParser);
+    }
+
+    public VerifiedToken verifyServiceToken(String token) {
+        return verify(token, serviceTokenParser);
+    }
+
+    private VerifiedToken verify(String token, JwtParser jwtParser) {
+        return new VerifiedToken(token, jwtParser.parseSignedClaims(token).getPayload());
     }
 
     public Claims getAccessTokenClaims(String token) {
-        return getClaims(token, accessTokenPublicKey);
+        return accessTokenParser.parseSignedClaims(token).getPayload();
     }
 
     public Claims getRefreshTokenClaims(String token) {
-        return getClaims(token, refreshTokenPublicKey);
+        return refreshTokenParser.parseSignedClaims(token).getPayload();
     }
 
     public Claims getServiceTokenClaims(String token) {
-        return getClaims(token, serviceTokenPublicKey);
+        return serviceTokenParser.parseSignedClaims(token).getPayload();
     }
 
+    private record Signer(String keyId, PrivateKey privateKey, JwtAlgorithm algorithm) {
+
+        Signer(String privateKey, String publicKey, JwtAlgorithm algorithm) throws Exception {
+            this(JwtKeys.keyId(JwtKeys.parsePublicKey(publicKey)),
+                    JwtKeys.parsePrivateKey(privateKey, algorithm), algorithm);
+        }
+    }
 }
@@ -0,0 +1,278 @@
+package ecommerce.auth_service.security;
+
+import ecommerce.auth_service.metrics.MetricsSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window login failure counters per email and per client address. The address is the
+ * TCP peer of the gateway's connection, IPv6 narrowed to its /64, which the caller cannot choose
+ * the way it chooses headers; a login without one is only counted against its email. Once
+ * either count reaches its limit the attempt is refused before the user lookup and the bcrypt
+ * check, so a credential-stuffing run costs a Redis round trip rather than a password hash.
+ * Both are stored under keyed HMAC digests so that neither emails nor addresses can be read or
+ * guessed back from Redis key names.
+ * <p>
+ * Counts are kept locally in per-identity bucket rings updated with atomics, and in Redis so
+ * that all auth instances see the same totals. A local count at the limit, or a Redis verdict
+ * cached for the rest of the current bucket, refuses without asking Redis. If Redis is
+ * unavailable the local counts alone decide.
+ */
+@Component
+@Slf4j
+public class LoginThrottle implements MetricsSource {
+
+    private static final String KEY_PREFIX = "login-failures:";
+
+    // Keeps these digests apart from the session id digests made with the same key
+    private static final String DIGEST_CONTEXT = "login-throttle:";
+
+    private static final RedisScript<String> LOGIN_FAILURES = RedisScript.of(
+            new ClassPathResource("scripts/login_failures.lua"), String.class);
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+
+    private final HmacDigester digester;
+
+    private final Map<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder refusedLocally = new LongAdder();
+    private final LongAdder refusedShared = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    private final boolean enabled;
+    private final int buckets;
+    private final long bucketMillis;
+    private final int maxFailuresPerEmail;
+    private final int maxFailuresPerClient;
+    private final int maxTracked;
+
+    public LoginThrottle(ReactiveRedisTemplate<String, String> redisTemplate,
+            @Qualifier("sessionDigester") HmacDigester digester,
+            @Value("${login-throttle.enabled:true}") boolean enabled,
+            @Value("${login-throttle.window-ms:900000}") long windowMillis,
+            @Value("${login-throttle.buckets:15}") int buckets,
+            @Value("${login-throttle.max-failures-per-email:5}") int maxFailuresPerEmail,
+            @Value("${login-throttle.max-failures-per-client:20}") int maxFailuresPerClient,
+            @Value("${login-throttle.max-tracked:100000}") int maxTracked) {
+        this.redisTemplate = redisTemplate;
+        this.digester = digester;
+        this.enabled = enabled;
+        this.buckets = buckets;
+        this.bucketMillis = windowMillis / buckets;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.maxFailuresPerClient = maxFailuresPerClient;
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Emits true when the email or the client address has used up its failures for the window.
+     */
+    public Mono<Boolean> isBlocked(String email, String clientAddress) {
+        if (!enabled) {
+            return Mono.just(false);
+        }
+        checks.increment();
+        String emailKey = emailKey(email);
+        String clientKey = clientKey(clientAddress);
+        long bucket = currentBucket();
+        if (isBlockedLocally(emailKey, maxFailuresPerEmail, bucket)
+                || (clientKey != null
+                && isBlockedLocally(clientKey, maxFailuresPerClient, bucket))) {
+            refusedLocally.increment();
+            return Mono.just(true);
+        }
+        return sharedCounts(emailKey, clientKey, bucket, false)
+                .map(counts -> {
+                    boolean blocked = markIfOverLimit(emailKey, counts[0], maxFailuresPerEmail,
+                            bucket)
+                            | (clientKey != null && markIfOverLimit(clientKey, counts[1],
+                            maxFailuresPerClient, bucket));
+                    if (blocked) {
+                        refusedShared.increment();
+                    }
+                    return blocked;
+                })
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Void> recordFailure(String email, String clientAddress) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        failures.increment();
+        String emailKey = emailKey(email);
+        String clientKey = clientKey(clientAddress);
+        long bucket = currentBucket();
+        window(emailKey).increment(bucket);
+        if (clientKey != null) {
+            window(clientKey).increment(bucket);
+        }
+        return sharedCounts(emailKey, clientKey, bucket, true)
+                .doOnNext(counts -> {
+                    markIfOverLimit(emailKey, counts[0], maxFailuresPerEmail, bucket);
+                    if (clientKey != null) {
+                        markIfOverLimit(clientKey, counts[1], maxFailuresPerClient, bucket);
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * A successful login clears the email's failures; the client's are kept, since one valid
+     * account must not unlock a client that is cycling through others.
+     */
+    public Mono<Void> recordSuccess(String email) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        String emailKey = emailKey(email);
+        windows.remove(emailKey);
+        return redisTemplate.delete(emailKey)
+                .doOnError(e -> {
+                    redisErrors.increment();
+                    log.warn("Could not clear login failures: {}", e.getMessage());
+                })
+                .onErrorComplete()
+                .then();
+    }
+
+    private boolean isBlockedLocally(String key, int limit, long bucket) {
+        SlidingWindow window = windows.get(key);
+        return window != null
+                && (window.blockedThroughBucket >= bucket || window.sum(bucket) >= limit);
+    }
+
+    private boolean markIfOverLimit(String key, long count, int limit, long bucket) {
+        if (count < limit) {
+            return false;
+        }
+        window(key).blockedThroughBucket = bucket;
+        return true;
+    }
+
+    private Mono<long[]> sharedCounts(String emailKey, String clientKey, long bucket,
+            boolean increment) {
+        List<String> keys = clientKey != null ? List.of(emailKey, clientKey) : List.of(emailKey);
+        return redisTemplate.execute(LOGIN_FAILURES, keys,
+                        List.of(String.valueOf(bucket), String.valueOf(buckets),
+                                String.valueOf(Duration.ofMillis(bucketMillis * buckets)
+                                        .toSeconds()),
+                                increment ? "1" : "0"))
+                .next()
+                .map(result -> {
+                    String[] fields = result.split(" ");
+                    return new long[]{Long.parseLong(fields[0]),
+                            fields.length > 1 ? Long.parseLong(fields[1]) : 0};
+                })
+                .doOnError(e -> {
+                    redisErrors.increment();
+                    log.warn("Shared login failure counters unavailable: {}", e.getMessage());
+                })
+                .onErrorComplete();
+    }
+
+    private SlidingWindow window(String key) {
+        SlidingWindow window = windows.get(key);
+        if (window != null) {
+            return window;
+        }
+        if (windows.size() >= maxTracked) {
+            purgeIdle();
+        }
+        return windows.computeIfAbsent(key, k -> new SlidingWindow(buckets));
+    }
+
+    @Scheduled(fixedDelayString = "${login-throttle.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        long bucket = currentBucket();
+        windows.values().removeIf(window -> window.blockedThroughBucket < bucket
+                && window.sum(bucket) == 0);
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / bucketMillis;
+    }
+
+    private String emailKey(String email) {
+        return KEY_PREFIX + "email:"
+                + digester.digest(DIGEST_CONTEXT + email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    // Null when the gateway forwarded no address
+    private String clientKey(String clientAddress) {
+        return clientAddress == null || clientAddress.isBlank()
+                ? null
+                : KEY_PREFIX + "client:" + digester.digest(DIGEST_CONTEXT + clientAddress);
+    }
+
+    @Override
+    public String getName() {
+        return "loginThrottle";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("tracked", String.valueOf(windows.size()));
+        snapshot.put("checks", String.valueOf(checks.sum()));
+        snapshot.put("refusedLocally", String.valueOf(refusedLocally.sum()));
+        snapshot.put("refusedShared", String.valueOf(refusedShared.sum()));
+        snapshot.put("failures", String.valueOf(failures.sum()));
+        snapshot.put("redisErrors", String.valueOf(redisErrors.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Ring of per-bucket failure counts. A slot is claimed for a new bucket with a CAS on its
+     * bucket number; a concurrent increment may land just before the reset and be lost, which
+     * only makes the local count err low, and Redis holds the shared total anyway.
+     */
+    private static final class SlidingWindow {
+        private final AtomicLongArray bucketIds;
+        private final AtomicLongArray counts;
+        private volatile long blockedThroughBucket = -1;
+
+        private SlidingWindow(int buckets) {
+            this.bucketIds = new AtomicLongArray(buckets);
+            this.counts = new AtomicLongArray(buckets);
+        }
+
+        private void increment(long bucket) {
+            int slot = (int) (bucket % bucketIds.length());
+            long current = bucketIds.get(slot);
+            if (current != bucket && bucketIds.compareAndSet(slot, current, bucket)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        private long sum(long bucket) {
+            long total = 0;
+            for (int slot = 0; slot < bucketIds.length(); slot++) {
+                if (bucketIds.get(slot) > bucket - bucketIds.length()) {
+                    total += counts.get(slot);
+                }
+            }
+            return total;
+        }
+    }
+}
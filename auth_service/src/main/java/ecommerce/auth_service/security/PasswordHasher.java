@@ -0,0 +1,165 @@
+package ecommerce.auth_service.security;
+
+import ecommerce.auth_service.metrics.MetricsSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Hashes new passwords with the configured {@link PasswordHashingStrategy} and verifies stored
+ * hashes of any registered strategy and cost.
+ * <p>
+ * With password-hashing.cost=0 the cost is calibrated at startup. The hashing code is first
+ * warmed up until the JIT has compiled it, then each candidate cost is warmed up again and
+ * timed as the median of several runs, cheapest first. The most expensive candidate within
+ * password-hashing.target-ms is chosen; timing stops once two candidates in a row exceed the
+ * target, so one slow sample cannot end calibration early. The logins per second per core of
+ * the candidates timed are logged and published as metrics. PasswordHashingBenchmark in the
+ * tests measures every candidate.
+ * <p>
+ * Neither calibration nor a configured cost goes below the strategy's minimum cost. Hashes made
+ * with another algorithm, a lower cost or in a form that cannot be read are reported by
+ * {@link #needsRehash(String)} so a successful login can upgrade them.
+ */
+@Component
+@Slf4j
+public class PasswordHasher implements MetricsSource {
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Password-123";
+    private static final int CALIBRATION_SAMPLES = 5;
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final int WARMUP_MIN_RUNS = 3;
+    private static final int OVER_TARGET_LIMIT = 2;
+
+    private final List<PasswordHashingStrategy> strategies;
+    private final PasswordHashingStrategy active;
+    private final int activeCost;
+    private final Map<Integer, Double> calibration = new LinkedHashMap<>();
+
+    public PasswordHasher(List<PasswordHashingStrategy> strategies,
+            @Value("${password-hashing.algorithm:bcrypt}") String algorithm,
+            @Value("${password-hashing.cost:0}") int cost,
+            @Value("${password-hashing.target-ms:250}") long targetMillis) {
+        this.strategies = strategies;
+        this.active = strategies.stream()
+                .filter(strategy -> strategy.getId().equalsIgnoreCase(algorithm))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown password-hashing.algorithm: " + algorithm));
+        if (cost > 0 && cost < active.minimumCost()) {
+            throw new IllegalArgumentException("password-hashing.cost " + cost
+                    + " is below the minimum of " + active.minimumCost() + " for "
+                    + active.getId());
+        }
+        this.activeCost = cost > 0 ? cost : calibrate(targetMillis);
+        log.info("Hashing passwords with {} at cost {}", active.getId(), activeCost);
+    }
+
+    public String hash(String rawPassword) {
+        return active.hash(rawPassword, activeCost);
+    }
+
+    public boolean matches(String rawPassword, String storedHash) {
+        PasswordHashingStrategy strategy = strategyFor(storedHash);
+        return strategy != null && strategy.matches(rawPassword, storedHash);
+    }
+
+    /**
+     * True when storedHash was made with another algorithm or a lower cost than the current one,
+     * or cannot be read.
+     */
+    public boolean needsRehash(String storedHash) {
+        return strategyFor(storedHash) != active || active.costOf(storedHash) < activeCost;
+    }
+
+    private PasswordHashingStrategy strategyFor(String storedHash) {
+        if (storedHash == null) {
+            return null;
+        }
+        for (PasswordHashingStrategy strategy : strategies) {
+            if (strategy.recognizes(storedHash)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+
+    private int calibrate(long targetMillis) {
+        warmUp(active.candidateCosts().getFirst());
+        return chooseCost(active.candidateCosts(), active.minimumCost(), targetMillis, cost -> {
+            double millis = medianHashMillis(cost);
+            calibration.put(cost, millis);
+            log.info("Calibration {} cost={} hashMs={} loginsPerSecondPerCore={}",
+                    active.getId(), cost, "%.1f".formatted(millis),
+                    "%.1f".formatted(1000 / millis));
+            return millis;
+        });
+    }
+
+    /**
+     * Times candidates cheapest first and returns the most expensive one whose time is within
+     * targetMillis, or minimumCost when there is none or it is higher. Stops timing after
+     * {@value #OVER_TARGET_LIMIT} candidates in a row are over the target.
+     */
+    static int chooseCost(List<Integer> candidates, int minimumCost, long targetMillis,
+            IntToDoubleFunction hashMillis) {
+        int chosen = minimumCost;
+        int overTarget = 0;
+        for (int candidate : candidates) {
+            if (candidate < minimumCost) {
+                continue;
+            }
+            if (hashMillis.applyAsDouble(candidate) > targetMillis) {
+                if (++overTarget == OVER_TARGET_LIMIT) {
+                    break;
+                }
+            } else {
+                overTarget = 0;
+                chosen = Math.max(chosen, candidate);
+            }
+        }
+        return chosen;
+    }
+
+    // Runs until the hashing code has been compiled, so the first candidate is not timed cold
+    private void warmUp(int cost) {
+        long deadline = System.nanoTime() + WARMUP_NANOS;
+        for (int runs = 0; runs < WARMUP_MIN_RUNS || System.nanoTime() < deadline; runs++) {
+            active.hash(CALIBRATION_PASSWORD, cost);
+        }
+    }
+
+    private double medianHashMillis(int cost) {
+        // One untimed run at this cost before the samples
+        active.hash(CALIBRATION_PASSWORD, cost);
+        double[] samples = new double[CALIBRATION_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            active.hash(CALIBRATION_PASSWORD, cost);
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    @Override
+    public String getName() {
+        return "passwordHashing";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("algorithm", active.getId());
+        snapshot.put("cost", String.valueOf(activeCost));
+        calibration.forEach((cost, millis) -> snapshot.put(
+                "calibration." + cost + ".loginsPerSecondPerCore", "%.1f".formatted(1000 / millis)));
+        return snapshot;
+    }
+}
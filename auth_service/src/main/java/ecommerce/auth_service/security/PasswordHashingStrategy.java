@@ -0,0 +1,42 @@
+package ecommerce.auth_service.security;
+
+import java.util.List;
+
+/**
+ * One password hashing algorithm with a tunable work factor. A stored hash must carry enough
+ * information for {@link #recognizes(String)} and {@link #costOf(String)} to work on it alone,
+ * so hashes from several algorithms and costs can coexist in the users table.
+ */
+public interface PasswordHashingStrategy {
+
+    /**
+     * Name used in password-hashing.algorithm.
+     */
+    String getId();
+
+    /**
+     * Work factors tried by calibration, cheapest first.
+     */
+    List<Integer> candidateCosts();
+
+    /**
+     * Lowest work factor new hashes may use, whatever calibration measures or the configuration
+     * says.
+     */
+    int minimumCost();
+
+    boolean recognizes(String storedHash);
+
+    /**
+     * @return the work factor of storedHash, or 0 when it cannot be read, so that a malformed
+     * hash is always reported as needing a rehash
+     */
+    int costOf(String storedHash);
+
+    String hash(String rawPassword, int cost);
+
+    /**
+     * @return false for a wrong password and for a storedHash that cannot be parsed
+     */
+    boolean matches(String rawPassword, String storedHash);
+}
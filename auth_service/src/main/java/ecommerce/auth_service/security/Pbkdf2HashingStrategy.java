@@ -0,0 +1,101 @@
+package ecommerce.auth_service.security;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * PBKDF2-HMAC-SHA256, stored as $pbkdf2-sha256$iterations$salt$hash with unpadded base64 salt
+ * and hash; the cost is the iteration count.
+ */
+@Component
+public class Pbkdf2HashingStrategy implements PasswordHashingStrategy {
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    // OWASP's recommendation for PBKDF2-HMAC-SHA256
+    private static final int MINIMUM_ITERATIONS = 600_000;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public String getId() {
+        return "pbkdf2";
+    }
+
+    @Override
+    public List<Integer> candidateCosts() {
+        return List.of(600_000, 800_000, 1_200_000, 1_600_000, 2_400_000);
+    }
+
+    @Override
+    public int minimumCost() {
+        return MINIMUM_ITERATIONS;
+    }
+
+    @Override
+    public boolean recognizes(String storedHash) {
+        return storedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public int costOf(String storedHash) {
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 5) {
+            return 0;
+        }
+        try {
+            return Math.max(Integer.parseInt(parts[2]), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String hash(String rawPassword, int cost) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + cost + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(rawPassword, salt, cost));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String storedHash) {
+        int iterations = costOf(storedHash);
+        if (iterations == 0) {
+            return false;
+        }
+        String[] parts = storedHash.split("\\$");
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] salt;
+        byte[] expected;
+        try {
+            salt = decoder.decode(parts[3]);
+            expected = decoder.decode(parts[4]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return salt.length > 0 && expected.length > 0
+                && MessageDigest.isEqual(derive(rawPassword, salt, iterations), expected);
+    }
+
+    private static byte[] derive(String rawPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive " + ALGORITHM, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
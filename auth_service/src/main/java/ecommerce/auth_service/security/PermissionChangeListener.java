@@ -0,0 +1,80 @@
+package ecommerce.auth_service.security;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Reloads the {@link PermissionMatrix} when the permission tables change. Triggers in
+ * 01-init-auth.sql send a NOTIFY on {@value #CHANNEL}; this listener holds its own connection
+ * outside the R2DBC pool. After every (re)connect the matrix is reloaded once, because
+ * notifications sent while disconnected are lost.
+ */
+@Component
+@Slf4j
+public class PermissionChangeListener {
+
+    static final String CHANNEL = "permissions_changed";
+
+    private final PermissionMatrix permissionMatrix;
+    private final ConnectionFactory connectionFactory;
+
+    private Disposable subscription;
+
+    public PermissionChangeListener(PermissionMatrix permissionMatrix,
+            @Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username}") String username,
+            @Value("${spring.r2dbc.password}") String password) {
+        this.permissionMatrix = permissionMatrix;
+        this.connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.usingWhen(connectionFactory.create(),
+                        connection -> listen((PostgresqlConnection) connection),
+                        Connection::close)
+                .doOnError(e -> log.warn("Permission change listener lost: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    private Flux<Void> listen(PostgresqlConnection connection) {
+        return connection.createStatement("LISTEN " + CHANNEL)
+                .execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .then(permissionMatrix.reload())
+                .thenMany(connection.getNotifications()
+                        .concatMap(notification -> {
+                            log.info("Permissions changed in {}, reloading",
+                                    notification.getParameter());
+                            return permissionMatrix.reload();
+                        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
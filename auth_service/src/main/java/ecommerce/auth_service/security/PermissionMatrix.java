@@ -0,0 +1,115 @@
+package ecommerce.auth_service.security;
+
+import ecommerce.auth_service.domain.Permission;
+import ecommerce.auth_service.domain.RolePermission;
+import ecommerce.auth_service.repository.PermissionRepository;
+import ecommerce.auth_service.repository.RolePermissionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of role_permissions. Every (service, destination) pair is interned to a small
+ * integer id and every role holds a bitset of the pair ids it is granted, so an access check is
+ * a few map lookups and bit tests. The whole matrix is swapped atomically on reload.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PermissionMatrix {
+
+    private static final Duration INITIAL_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PermissionRepository permissionRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), 0);
+
+    @PostConstruct
+    public void init() {
+        // Authorization must not run against an empty matrix, so the first load blocks startup
+        reload().block(INITIAL_LOAD_TIMEOUT);
+    }
+
+    public Mono<Void> reload() {
+        return Mono.zip(permissionRepository.findAll().collectList(),
+                        rolePermissionRepository.findAll().collectList())
+                .map(tuple -> build(tuple.getT1(), tuple.getT2()))
+                .doOnNext(loaded -> {
+                    snapshot = loaded;
+                    log.info("Loaded permission matrix: {} roles, {} permissions",
+                            loaded.roleBits().size(), loaded.pairCount());
+                })
+                .then();
+    }
+
+    public boolean hasAccess(String roleName, List<String> services, List<String> destinations) {
+        if (roleName == null || services.size() != destinations.size()) {
+            return false;
+        }
+        Snapshot current = snapshot;
+        long[] bits = current.roleBits().get(roleName);
+        if (bits == null) {
+            return false;
+        }
+        for (int i = 0; i < services.size(); i++) {
+            Map<String, Integer> destinationIds = current.pairIds().get(services.get(i));
+            if (destinationIds == null) {
+                return false;
+            }
+            Integer pairId = destinationIds.get(destinations.get(i));
+            if (pairId == null || (bits[pairId >>> 6] & (1L << pairId)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getRoleCount() {
+        return snapshot.roleBits().size();
+    }
+
+    public int getPermissionCount() {
+        return snapshot.pairCount();
+    }
+
+    private Snapshot build(List<Permission> permissions, List<RolePermission> rolePermissions) {
+        Map<String, Map<String, Integer>> pairIds = new HashMap<>();
+        Map<Long, Integer> idsByPermission = new HashMap<>();
+        int nextId = 0;
+        for (Permission permission : permissions) {
+            Map<String, Integer> destinationIds = pairIds.computeIfAbsent(
+                    permission.getService(), service -> new HashMap<>());
+            Integer pairId = destinationIds.get(permission.getDestination());
+            if (pairId == null) {
+                pairId = nextId++;
+                destinationIds.put(permission.getDestination(), pairId);
+            }
+            idsByPermission.put(permission.getId(), pairId);
+        }
+
+        int words = Math.max(1, (nextId + 63) >>> 6);
+        Map<String, long[]> roleBits = new HashMap<>();
+        for (RolePermission rolePermission : rolePermissions) {
+            Integer pairId = idsByPermission.get(rolePermission.getPermissionId());
+            if (pairId == null) {
+                continue;
+            }
+            long[] bits = roleBits.computeIfAbsent(rolePermission.getRoleName(),
+                    role -> new long[words]);
+            bits[pairId >>> 6] |= 1L << pairId;
+        }
+        return new Snapshot(pairIds, roleBits, nextId);
+    }
+
+    private record Snapshot(Map<String, Map<String, Integer>> pairIds,
+            Map<String, long[]> roleBits, int pairCount) {
+    }
+}
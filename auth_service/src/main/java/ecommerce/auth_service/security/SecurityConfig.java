@@ -1,5 +1,6 @@
 package ecommerce.auth_service.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -12,4 +13,15 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    @Bean
+    public HmacDigester sessionDigester(@Value("${session.hmac-key}") String sessionHmacKey) {
+        return new HmacDigester(sessionHmacKey);
+    }
+
+    @Bean
+    public HmacDigester refreshTokenDigester(
+            @Value("${refresh-token.hmac-key}") String refreshTokenHmacKey) {
+        return new HmacDigester(refreshTokenHmacKey);
+    }
+
 }
@@ -0,0 +1,169 @@
+package ecommerce.auth_service.security;
+
+import ecommerce.auth_service.metrics.MetricsSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of signed service tokens keyed by their claim tuple (userId, role, services,
+ * destinations). A cached token is handed out again while at least min-remaining-share of its
+ * lifetime is left, so repeated requests for the same routes skip the private-key operation.
+ * <p>
+ * Two requests missing at the same time may both sign; the later token simply replaces the
+ * earlier one, which stays valid until its own expiry.
+ */
+@Component
+@Slf4j
+public class ServiceTokenCache implements MetricsSource {
+
+    private final ServiceTokenIssuer serviceTokenIssuer;
+
+    private final Map<Key, CachedToken> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder signs = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long reuseMillis;
+
+    private long lastSampleSigns;
+    private long lastSampleNanos = System.nanoTime();
+    private volatile double signsPerSecond;
+
+    public ServiceTokenCache(ServiceTokenIssuer serviceTokenIssuer,
+            @Value("${service-token-cache.enabled:true}") boolean enabled,
+            @Value("${service-token-cache.max-entries:200000}") int maxEntries,
+            @Value("${service-token-cache.min-remaining-share:0.5}") double minRemainingShare,
+            @Value("${jwt.service.expiration}") long serviceTokenExpiration) {
+        if (minRemainingShare < 0 || minRemainingShare >= 1) {
+            throw new IllegalArgumentException(
+                    "service-token-cache.min-remaining-share must be in [0, 1)");
+        }
+        this.serviceTokenIssuer = serviceTokenIssuer;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.reuseMillis = (long) (serviceTokenExpiration * (1 - minRemainingShare));
+    }
+
+    /**
+     * @return a cached service token that may still be handed out, or null
+     */
+    public String get(String userId, String roleName, List<String> services,
+            List<String> destinations) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(userId, roleName, services, destinations);
+        CachedToken cached = entries.get(key);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.reuseUntilMillis() <= System.currentTimeMillis()) {
+            if (entries.remove(key, cached)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.token();
+    }
+
+    /**
+     * Signs a new service token and caches it for later requests with the same claims.
+     */
+    public String sign(String userId, String roleName, List<String> services,
+            List<String> destinations) {
+        long issuedAt = System.currentTimeMillis();
+        String token = serviceTokenIssuer.issue(userId, roleName, services, destinations);
+        signs.increment();
+        if (enabled) {
+            if (entries.size() >= maxEntries) {
+                makeRoom();
+            }
+            entries.put(new Key(userId, roleName, List.copyOf(services),
+                    List.copyOf(destinations)), new CachedToken(token, issuedAt + reuseMillis));
+        }
+        return token;
+    }
+
+    private void makeRoom() {
+        purgeExpired();
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().reuseUntilMillis() <= now;
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${service-token-cache.stats-interval-ms:60000}")
+    public synchronized void reportStats() {
+        long now = System.nanoTime();
+        long signCount = signs.sum();
+        signsPerSecond = (signCount - lastSampleSigns) * 1_000_000_000.0 / (now - lastSampleNanos);
+        lastSampleSigns = signCount;
+        lastSampleNanos = now;
+        if (!enabled) {
+            return;
+        }
+        purgeExpired();
+        log.info("Service token cache: size={} hitRatio={} signsPerSecond={}",
+                entries.size(), formatHitRatio(), "%.1f".formatted(signsPerSecond));
+    }
+
+    private String formatHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? "n/a" : "%.3f".formatted((double) hitCount / total);
+    }
+
+    @Override
+    public String getName() {
+        return "serviceTokenCache";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", String.valueOf(entries.size()));
+        snapshot.put("hits", String.valueOf(hits.sum()));
+        snapshot.put("misses", String.valueOf(misses.sum()));
+        snapshot.put("evictions", String.valueOf(evictions.sum()));
+        snapshot.put("hitRatio", formatHitRatio());
+        snapshot.put("signs", String.valueOf(signs.sum()));
+        snapshot.put("signsPerSecond", "%.1f".formatted(signsPerSecond));
+        return snapshot;
+    }
+
+    private record Key(String userId, String roleName, List<String> services,
+            List<String> destinations) {
+    }
+
+    private record CachedToken(String token, long reuseUntilMillis) {
+    }
+}
@@ -0,0 +1,59 @@
+package ecommerce.auth_service.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Chooses the service token format. In JWT mode every service token is a signed JWT. In
+ * CAPABILITY mode a request aimed only at a service with a configured capability key gets a
+ * {@link CapabilityTokenSigner} token instead; everything else, including auth_service's own
+ * destinations, still gets a JWT.
+ */
+@Component
+@Slf4j
+public class ServiceTokenIssuer {
+
+    public enum Format {
+        JWT,
+        CAPABILITY
+    }
+
+    private static final String USER_SERVICE = "USER_SERVICE";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final CapabilityTokenSigner userServiceSigner;
+    private final long serviceTokenExpiration;
+
+    public ServiceTokenIssuer(JwtTokenProvider jwtTokenProvider,
+            @Value("${service-token.format:JWT}") Format format,
+            @Value("${capability-token.user-service.key:}") String userServiceKey,
+            @Value("${capability-token.user-service.destinations:}") List<String> userServiceDestinations,
+            @Value("${jwt.service.expiration}") long serviceTokenExpiration) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.serviceTokenExpiration = serviceTokenExpiration;
+        if (format == Format.CAPABILITY && userServiceKey.isBlank()) {
+            throw new IllegalStateException(
+                    "capability-token.user-service.key is required for CAPABILITY service tokens");
+        }
+        this.userServiceSigner = format == Format.CAPABILITY
+                ? new CapabilityTokenSigner(userServiceKey, userServiceDestinations)
+                : null;
+        log.info("Issuing {} service tokens", format);
+    }
+
+    public String issue(String userId, String roleName, List<String> services,
+            List<String> destinations) {
+        if (userServiceSigner != null && userId != null && !services.isEmpty()
+                && services.stream().allMatch(USER_SERVICE::equals)) {
+            long mask = userServiceSigner.mask(destinations);
+            if (mask != 0) {
+                return userServiceSigner.sign(userId, mask,
+                        System.currentTimeMillis() + serviceTokenExpiration);
+            }
+        }
+        return jwtTokenProvider.createServiceToken(userId, roleName, services, destinations);
+    }
+}
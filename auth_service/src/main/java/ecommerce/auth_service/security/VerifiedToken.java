@@ -0,0 +1,25 @@
+package ecommerce.auth_service.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * A compact JWT together with its claims, produced either by verifying the signature once or by
+ * minting the token locally. Holders can read the subject, role and expiry without parsing the
+ * token again.
+ */
+public record VerifiedToken(String token, Claims claims) {
+
+    public String subject() {
+        return claims.getSubject();
+    }
+
+    public String role() {
+        return claims.get("role", String.class);
+    }
+
+    public Date expiresAt() {
+        return claims.getExpiration();
+    }
+}
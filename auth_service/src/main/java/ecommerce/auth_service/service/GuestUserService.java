@@ -1,8 +1,8 @@
 package ecommerce.auth_service.service;
 
-import ecommerce.auth_service.dto.BaseResponse;
+import ecommerce.auth_service.dto.GuestUserResponse;
 import reactor.core.publisher.Mono;
 
 public interface GuestUserService {
-    public Mono<BaseResponse> createGuestUser();
+    public Mono<GuestUserResponse> createGuestUser();
 }
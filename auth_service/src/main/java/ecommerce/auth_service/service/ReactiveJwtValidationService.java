@@ -1,19 +1,24 @@
 package ecommerce.auth_service.service;
 
+import ecommerce.auth_service.security.VerifiedToken;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
+/**
+ * Verifies tokens exactly once. Each method emits the verified token with its claims, or
+ * completes empty when the token is blank, malformed, badly signed or expired.
+ */
 public interface ReactiveJwtValidationService {
-    public Mono<Boolean> validateAccessToken(String accessToken, String userAgent,
+    public Mono<VerifiedToken> validateAccessToken(String accessToken, String userAgent,
             String clientCity,
             Map<String, String> metadata);
 
-    public Mono<Boolean> validateRefreshToken(String refreshToken, String userAgent,
+    public Mono<VerifiedToken> validateRefreshToken(String refreshToken, String userAgent,
             String clientCity,
             Map<String, String> metadata);
 
-    public Mono<Boolean> validateServiceToken(String serviceToken, String userAgent,
+    public Mono<VerifiedToken> validateServiceToken(String serviceToken, String userAgent,
             String clientCity,
             Map<String, String> metadata);
 
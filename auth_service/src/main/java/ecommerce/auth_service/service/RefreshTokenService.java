@@ -1,11 +1,16 @@
 package ecommerce.auth_service.service;
 
 import ecommerce.auth_service.domain.RefreshToken;
+import ecommerce.auth_service.security.VerifiedToken;
 import reactor.core.publisher.Mono;
 
 public interface RefreshTokenService {
 
-    public Mono<Boolean> validateRefreshToken(String refreshToken, String userAgent,
+    /**
+     * Emits the verified refresh token when it is correctly signed, still stored and used from
+     * the device it was issued to; completes empty otherwise.
+     */
+    public Mono<VerifiedToken> validateRefreshToken(String refreshToken, String userAgent,
             String clientCity);
 
     public Mono<Boolean> deleteByRefreshToken(String refreshToken);
@@ -18,7 +23,9 @@ public interface RefreshTokenService {
             String userAgent,
             String clientCity);
 
-    public Mono<RefreshToken> updateRefreshToken(String userId, String refreshToken,
-            String userAgent,
-            String clientCity);
+    /**
+     * Swaps the stored refresh token for a new one. Empty when the old token is no longer the
+     * current one, e.g. because a concurrent request already rotated it.
+     */
+    public Mono<RefreshToken> rotateRefreshToken(String oldRefreshToken, String newRefreshToken);
 }
@@ -0,0 +1,16 @@
+package ecommerce.auth_service.service;
+
+import ecommerce.auth_service.ProtoRevocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface RevocationService {
+
+    /**
+     * Publishes the digest of a revoked access token (the session key in Redis) to every
+     * auth_service instance, each of which passes it on to its subscribed gateways.
+     */
+    public Mono<Void> revoke(String accessTokenDigest);
+
+    public Flux<ProtoRevocation> revocations();
+}
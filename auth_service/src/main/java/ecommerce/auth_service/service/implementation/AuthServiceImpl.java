@@ -2,25 +2,27 @@ package ecommerce.auth_service.service.implementation;
 
 import ecommerce.auth_service.ProtoAuthRequest;
 import ecommerce.auth_service.dto.AuthResponse;
+import ecommerce.auth_service.dto.GuestUserResponse;
+import ecommerce.auth_service.metrics.ValidateMetrics;
 import ecommerce.auth_service.repository.SessionRepository;
+import ecommerce.auth_service.security.AccessTokenIssuer;
+import ecommerce.auth_service.security.CryptoOverloadedException;
+import ecommerce.auth_service.security.CryptoScheduler;
 import ecommerce.auth_service.security.JwtTokenProvider;
+import ecommerce.auth_service.security.ServiceTokenCache;
+import ecommerce.auth_service.security.VerifiedToken;
 import ecommerce.auth_service.service.AuthService;
-import ecommerce.auth_service.service.MonitoringClient;
 import ecommerce.auth_service.service.ReactiveJwtValidationService;
 import ecommerce.auth_service.service.RefreshTokenService;
 import ecommerce.auth_service.service.RoleService;
 import ecommerce.auth_service.util.CustomResponseStatus;
-import ecommerce.auth_service.util.EventType;
 import ecommerce.auth_service.util.Roles;
-import ecommerce.auth_service.util.TokenHashUtil;
-import io.jsonwebtoken.Claims;
+import ecommerce.common.monitoring.EventType;
+import ecommerce.common.monitoring.MonitoringClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.List;
@@ -33,14 +35,22 @@ public class AuthServiceImpl implements AuthService {
 
     private final SessionRepository sessionRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ServiceTokenCache serviceTokenCache;
+    private final AccessTokenIssuer accessTokenIssuer;
     private final GuestUserServiceImpl guestUserService;
-    private final TransactionalOperator transactionalOperator;
+    private final GuestCredentialPool guestCredentialPool;
     private final RoleService roleService;
-    private final BCryptPasswordEncoder passwordEncoder;
     private final RefreshTokenService refreshTokenService;
     private final MonitoringClient monitoringClient;
     private final ReactiveJwtValidationService jwtValidationService;
-
+    private final ValidateMetrics validateMetrics;
+    private final CryptoScheduler cryptoScheduler;
+
+    /**
+     * Runs without a surrounding transaction. Only the refresh-token branch touches Postgres and
+     * its rotation is a single compare-and-set UPDATE, so a connection is held per statement
+     * rather than across JWT parsing, Redis round trips and token signing.
+     */
     @Override
     public Mono<AuthResponse> validate(ProtoAuthRequest authRequest) {
         return Mono.defer(() -> {
@@ -57,20 +67,47 @@ public class AuthServiceImpl implements AuthService {
                     }
 
                     return validateAccessTokenAndSession(authRequest)
-                            .flatMap(isValid -> isValid
-                                    ? handleValidAccessToken(refreshToken, accessToken, sessionId,
-                                    services, destinations)
-                                    : handleInvalidAccessToken(refreshToken, services, destinations,
-                                    userAgent, clientCity));
+                            .flatMap(verified -> handleValidAccessToken(refreshToken, verified,
+                                    sessionId, services, destinations))
+                            .switchIfEmpty(Mono.defer(() -> handleInvalidAccessToken(refreshToken,
+                                    services, destinations, userAgent, clientCity)));
+                })
+                .onErrorResume(CryptoOverloadedException.class, e -> {
+                    log.warn("Rejected validation: {}", e.getMessage());
+                    return Mono.just(createAuthResponse(null, null, null, null,
+                            CustomResponseStatus.SERVICE_OVERLOADED, 503));
                 })
-                .as(transactionalOperator::transactional)
                 .onErrorResume(e -> {
                     log.error("Unexpected error in validation", e);
                     return createUnexpectedErrorResponse();
-                });
+                })
+                .as(validation -> validateMetrics.trace(validation,
+                        response -> classify(authRequest, response)));
+    }
+
+    /**
+     * A response carrying the caller's own access token means the fast path succeeded; any
+     * other token was either minted from the refresh token or issued to a fresh guest.
+     */
+    private ValidateMetrics.Outcome classify(ProtoAuthRequest authRequest, AuthResponse response) {
+        if (response.getResponseStatus() == CustomResponseStatus.UNEXPECTED_ERROR
+                || response.getResponseStatus() == CustomResponseStatus.SERVICE_OVERLOADED) {
+            return ValidateMetrics.Outcome.REJECTED;
+        }
+        if (authRequest.getAccessToken().equals(response.getAccessToken())) {
+            return ValidateMetrics.Outcome.VALID;
+        }
+        return response.getResponseStatus() == CustomResponseStatus.AUTHORIZED_USER
+                || response.getResponseStatus() == CustomResponseStatus.UNAUTHORIZED_USER
+                ? ValidateMetrics.Outcome.REFRESHED
+                : ValidateMetrics.Outcome.GUEST;
     }
 
-    private Mono<Boolean> validateAccessTokenAndSession(ProtoAuthRequest authRequest) {
+    /**
+     * Emits the verified access token when both the token and its session are valid; completes
+     * empty otherwise, after cleaning up whatever half of the pair was presented.
+     */
+    private Mono<VerifiedToken> validateAccessTokenAndSession(ProtoAuthRequest authRequest) {
 
         String accessToken = authRequest.getAccessToken();
         String sessionId = authRequest.getSessionId();
@@ -92,7 +129,7 @@ public class AuthServiceImpl implements AuthService {
                     "Blank session id and accessToken with existing refresh token",
                     metadata);
 
-            return Mono.just(false);
+            return Mono.empty();
         }
 
         if (accessToken.isBlank()) {
@@ -107,7 +144,8 @@ public class AuthServiceImpl implements AuthService {
                     metadata);
 
             return handleBackgroundErrors(
-                    List.of(sessionRepository.deleteBySessionId(sessionId))).thenReturn(false);
+                    List.of(sessionRepository.deleteBySessionId(sessionId)))
+                    .then(Mono.empty());
         }
 
         if (sessionId.isBlank()) {
@@ -121,55 +159,71 @@ public class AuthServiceImpl implements AuthService {
                     "Blank sessionId with existing refresh token, deleting pair from database",
                     metadata);
             return handleBackgroundErrors(
-                    List.of(sessionRepository.deleteByAccessToken(accessToken))).thenReturn(false);
+                    List.of(sessionRepository.deleteByAccessToken(accessToken)))
+                    .then(Mono.empty());
+        }
+
+        if (AccessTokenIssuer.isOpaque(accessToken)) {
+            // Opaque handles carry no signature; the session store alone decides
+            return sessionRepository.resolveSession(accessToken, sessionId)
+                    .switchIfEmpty(Mono.defer(() -> rejectPair(accessToken, sessionId,
+                            userAgent, clientCity, metadata,
+                            "Unknown opaque access token session pair, deleting pair from database")));
         }
 
         return jwtValidationService
                 .validateAccessToken(accessToken, userAgent, clientCity, metadata)
-                .flatMap(isValidToken -> {
-                    metadata.put("accessToken", accessToken);
-                    metadata.put("sessionId", sessionId);
-                    if (!isValidToken) {
-                        monitoringClient.sendEvent(
-                                EventType.INVALID_SESSION_TOKEN_COMBINATION,
-                                "AUTH_SERVICE",
-                                "",
-                                userAgent,
-                                clientCity,
-                                "Invalid access token, deleting pair from database",
-                                metadata);
-                        return handleBackgroundErrors(
-                                List.of(
-                                        sessionRepository.deleteByAccessToken(
-                                                accessToken),
-                                        sessionRepository.deleteBySessionId(
-                                                sessionId)))
-                                .thenReturn(false);
-                    }
-                    return sessionRepository
-                            .validateSession(accessToken, sessionId)
-                            .flatMap(isValidSession -> {
-                                if (!isValidSession) {
-                                    monitoringClient.sendEvent(
-                                            EventType.INVALID_SESSION_TOKEN_COMBINATION,
-                                            "AUTH_SERVICE",
-                                            "",
-                                            userAgent,
-                                            clientCity,
-                                            "Invalid access token session pair, deleting pair from database",
-                                            metadata);
-                                    return handleBackgroundErrors(List.of(
-                                            sessionRepository
-                                                    .deleteByAccessToken(
-                                                            accessToken),
-                                            sessionRepository
-                                                    .deleteBySessionId(
-                                                            sessionId)))
-                                            .thenReturn(false);
-                                }
-                                return Mono.just(true);
-                            });
-                });
+                .switchIfEmpty(Mono.defer(() -> rejectPair(accessToken, sessionId, userAgent,
+                        clientCity, metadata, "Invalid access token, deleting pair from database")))
+                .flatMap(verified -> GuestUserServiceImpl.isStatelessSession(sessionId)
+                        ? validateStatelessGuestSession(verified, sessionId, userAgent,
+                        clientCity, metadata)
+                        : sessionRepository
+                        .validateSession(accessToken, sessionId)
+                        .flatMap(isValidSession -> isValidSession
+                                ? Mono.just(verified)
+                                : rejectPair(accessToken, sessionId, userAgent, clientCity,
+                                metadata,
+                                "Invalid access token session pair, deleting pair from database")));
+    }
+
+    /**
+     * Guest sessions prefixed with "g." exist only as an HMAC of the guest's access token, so
+     * there is nothing to look up or delete in Redis for them.
+     */
+    private Mono<VerifiedToken> validateStatelessGuestSession(VerifiedToken accessToken,
+            String sessionId, String userAgent, String clientCity, Map<String, String> metadata) {
+        if (guestUserService.matchesStatelessSession(accessToken, sessionId)) {
+            return Mono.just(accessToken);
+        }
+        metadata.put("accessToken", accessToken.token());
+        metadata.put("sessionId", sessionId);
+        monitoringClient.sendEvent(
+                EventType.INVALID_SESSION_TOKEN_COMBINATION,
+                "AUTH_SERVICE",
+                "",
+                userAgent,
+                clientCity,
+                "Invalid stateless guest access token session pair",
+                metadata);
+        return Mono.empty();
+    }
+
+    private Mono<VerifiedToken> rejectPair(String accessToken, String sessionId,
+            String userAgent, String clientCity, Map<String, String> metadata, String message) {
+        metadata.put("accessToken", accessToken);
+        metadata.put("sessionId", sessionId);
+        monitoringClient.sendEvent(
+                EventType.INVALID_SESSION_TOKEN_COMBINATION,
+                "AUTH_SERVICE",
+                "",
+                userAgent,
+                clientCity,
+                message,
+                metadata);
+        return handleBackgroundErrors(
+                List.of(sessionRepository.invalidatePair(accessToken, sessionId)))
+                .then(Mono.empty());
     }
 
     private Mono<Void> handleBackgroundErrors(List<Mono<Boolean>> operations) {
@@ -178,149 +232,141 @@ public class AuthServiceImpl implements AuthService {
                 .onErrorComplete();
     }
 
-    private Mono<AuthResponse> handleValidAccessToken(String refreshToken, String accessToken,
-            String sessionId,
+    private Mono<AuthResponse> handleValidAccessToken(String refreshToken,
+            VerifiedToken accessToken, String sessionId,
             List<String> services, List<String> destinations) {
-        return parseAccessTokenClaims(accessToken)
-                .flatMap(claims -> {
-                    String roleName = claims.get("role", String.class);
-                    return roleService.hasAccess(roleName, services, destinations)
-                            .flatMap(hasAccess -> {
-                                if (hasAccess) {
-                                    return createServiceToken(claims.getSubject(),
-                                            roleName, services,
-                                            destinations)
-                                            .map(serviceToken -> createAuthResponse(
-                                                    accessToken,
-                                                    sessionId,
-                                                    serviceToken,
-                                                    refreshToken,
-                                                    roleName.equals(Roles.USER
-                                                            .name())
-                                                            ?
-                                                            CustomResponseStatus.AUTHORIZED_USER
-                                                            :
-                                                            CustomResponseStatus.AUTHORIZED_GUEST_USER,
-                                                    200));
-                                } else {
-                                    return Mono.just(unauthorizedAccessResponse(
-                                            accessToken, sessionId,
-                                            refreshToken,
-                                            roleName.equals(Roles.USER
-                                                    .name())
-                                                    ?
-                                                    CustomResponseStatus.UNAUTHORIZED_USER
-                                                    :
-                                                    CustomResponseStatus.UNAUTHORIZED_GUEST_USER));
-                                }
-                            });
+        String roleName = accessToken.role();
+        // Every signed-in role, ADMIN included, is a user; only GUEST_USER is a guest
+        return roleService.hasAccess(roleName, services, destinations)
+                .flatMap(hasAccess -> {
+                    if (hasAccess) {
+                        return createServiceToken(accessToken.subject(), roleName, services,
+                                destinations)
+                                .map(serviceToken -> createAuthResponse(
+                                        accessToken.token(),
+                                        sessionId,
+                                        serviceToken,
+                                        refreshToken,
+                                        roleName.equals(Roles.GUEST_USER.name())
+                                                ? CustomResponseStatus.AUTHORIZED_GUEST_USER
+                                                : CustomResponseStatus.AUTHORIZED_USER,
+                                        200));
+                    } else {
+                        return Mono.just(unauthorizedAccessResponse(
+                                accessToken.token(), sessionId,
+                                refreshToken,
+                                roleName.equals(Roles.GUEST_USER.name())
+                                        ? CustomResponseStatus.UNAUTHORIZED_GUEST_USER
+                                        : CustomResponseStatus.UNAUTHORIZED_USER));
+                    }
                 });
     }
 
     private Mono<AuthResponse> handleInvalidAccessToken(String refreshToken, List<String> services,
             List<String> destinations, String userAgent, String clientCity) {
         return refreshTokenService.validateRefreshToken(refreshToken, userAgent, clientCity)
-                .flatMap(isValid -> !isValid
-                        ? handleInvalidRefreshToken(refreshToken, services, destinations)
-                        : handleValidRefreshToken(refreshToken, services, destinations,
+                .flatMap(verified -> handleValidRefreshToken(verified, services, destinations,
                         userAgent, clientCity))
+                .switchIfEmpty(Mono.defer(() -> handleInvalidRefreshToken(refreshToken, services,
+                        destinations)))
                 .doOnError(
                         e -> log.error("Error in handleInvalidAccessToken: {}", e.getMessage(), e));
     }
 
     private Mono<AuthResponse> handleInvalidRefreshToken(String refreshToken,
             List<String> services, List<String> destinations) {
-        return encodeRefreshToken(refreshToken)
-                .flatMap(encodedToken -> handleBackgroundErrors(
-                        List.of(refreshTokenService.deleteByRefreshToken(encodedToken))))
+        return handleBackgroundErrors(
+                List.of(refreshTokenService.deleteByRefreshToken(refreshToken)))
                 .then(unauthenticatedAccessResponse(services, destinations));
     }
 
-    private Mono<AuthResponse> handleValidRefreshToken(String refreshToken, List<String> services,
-            List<String> destinations, String userAgent, String clientCity) {
-        return parseRefreshTokenClaims(refreshToken)
-                .flatMap(claims -> {
-                    String userId = claims.getSubject();
-                    String roleName = claims.get("role", String.class);
-
-                    return Mono.zip(
-                                    roleService.hasAccess(roleName, services, destinations),
-                                    createAccessToken(userId, roleName),
-                                    createRefreshToken(userId, roleName))
-                            .flatMap(tuple -> {
-                                boolean hasAccess = tuple.getT1();
-                                String newAccessToken = tuple.getT2();
-                                String newRefreshToken = tuple.getT3();
-
-                                return refreshTokenService.updateRefreshToken(userId,
-                                                passwordEncoder.encode(TokenHashUtil
-                                                        .hash(newRefreshToken)),
-                                                userAgent, clientCity)
-                                        .then(sessionRepository.saveSession(
-                                                newAccessToken))
-                                        .map(savedSession -> hasAccess
-                                                ? createAuthResponse(
-                                                newAccessToken,
-                                                savedSession.getSessionId(),
-                                                jwtTokenProvider.createServiceToken(
-                                                        userId,
-                                                        roleName,
-                                                        services,
-                                                        destinations),
-                                                newRefreshToken,
-                                                CustomResponseStatus.AUTHORIZED_USER,
-                                                200)
-                                                : unauthorizedAccessResponse(
-                                                newAccessToken,
-                                                savedSession.getSessionId(),
-                                                newRefreshToken,
-                                                CustomResponseStatus.UNAUTHORIZED_USER));
-                            });
+    private Mono<AuthResponse> handleValidRefreshToken(VerifiedToken verifiedRefreshToken,
+            List<String> services, List<String> destinations, String userAgent,
+            String clientCity) {
+        String refreshToken = verifiedRefreshToken.token();
+        String userId = verifiedRefreshToken.subject();
+        String roleName = verifiedRefreshToken.role();
+
+        return Mono.zip(
+                        roleService.hasAccess(roleName, services, destinations),
+                        createAccessToken(userId, roleName),
+                        createRefreshToken(userId, roleName))
+                .flatMap(tuple -> {
+                    boolean hasAccess = tuple.getT1();
+                    VerifiedToken newAccessToken = tuple.getT2();
+                    String newRefreshToken = tuple.getT3();
+
+                    return refreshTokenService.rotateRefreshToken(refreshToken, newRefreshToken)
+                            .flatMap(rotated -> sessionRepository.saveSession(newAccessToken))
+                            .flatMap(savedSession -> hasAccess
+                                    ? createServiceToken(userId, roleName, services,
+                                    destinations).map(serviceToken -> createAuthResponse(
+                                    newAccessToken.token(),
+                                    savedSession.getSessionId(),
+                                    serviceToken,
+                                    newRefreshToken,
+                                    CustomResponseStatus.AUTHORIZED_USER,
+                                    200))
+                                    : Mono.just(unauthorizedAccessResponse(
+                                    newAccessToken.token(),
+                                    savedSession.getSessionId(),
+                                    newRefreshToken,
+                                    CustomResponseStatus.UNAUTHORIZED_USER)))
+                            .switchIfEmpty(Mono.defer(() -> {
+                                // Another request already rotated this token
+                                monitoringClient.sendEvent(
+                                        EventType.FAILED_REFRESH_TOKEN_MATCH,
+                                        "AUTH_SERVICE",
+                                        userId,
+                                        userAgent,
+                                        clientCity,
+                                        "Refresh token already rotated",
+                                        null);
+                                return unauthenticatedAccessResponse(services, destinations);
+                            }));
                 });
     }
 
-    private Mono<String> encodeRefreshToken(String rawRefreshToken) {
-        return Mono.fromCallable(() -> passwordEncoder.encode(TokenHashUtil.hash(rawRefreshToken)))
-                .subscribeOn(Schedulers.boundedElastic());
-    }
-
     private Mono<AuthResponse> unauthenticatedAccessResponse(List<String> services,
             List<String> destinations) {
-        return guestUserService.createGuestUser().flatMap(guestUserResponse -> {
-            String guestAccessToken = guestUserResponse.getAccessToken();
+        return guestCredentials().flatMap(guestUserResponse -> {
+            // The guest token was minted here, so its claims are already at hand
+            VerifiedToken guestAccessToken = guestUserResponse.getAccessToken();
             String sessionId = guestUserResponse.getSessionId();
-            return parseAccessTokenClaims(guestAccessToken)
-                    .flatMap(claims -> {
-                        String roleName = claims.get("role", String.class);
-                        return roleService.hasAccess(roleName, services, destinations)
-                                .flatMap(hasAccess -> {
-                                    if (hasAccess) {
-                                        return createServiceToken(
-                                                claims.getSubject(),
-                                                roleName, services,
-                                                destinations)
-                                                .map(serviceToken -> createAuthResponse(
-                                                        guestAccessToken,
-                                                        sessionId,
-                                                        serviceToken,
-                                                        null,
-                                                        CustomResponseStatus.AUTHORIZED_GUEST_USER,
-                                                        200));
-                                    } else {
-                                        return Mono.just(
-                                                createAuthResponse(
-                                                        guestAccessToken,
-                                                        sessionId,
-                                                        null,
-                                                        null,
-                                                        CustomResponseStatus.UNAUTHORIZED_GUEST_USER,
-                                                        403));
-                                    }
-                                });
+            String roleName = guestAccessToken.role();
+            return roleService.hasAccess(roleName, services, destinations)
+                    .flatMap(hasAccess -> {
+                        if (hasAccess) {
+                            return createServiceToken(
+                                    guestAccessToken.subject(),
+                                    roleName, services,
+                                    destinations)
+                                    .map(serviceToken -> createAuthResponse(
+                                            guestAccessToken.token(),
+                                            sessionId,
+                                            serviceToken,
+                                            null,
+                                            CustomResponseStatus.AUTHORIZED_GUEST_USER,
+                                            200));
+                        } else {
+                            return Mono.just(
+                                    createAuthResponse(
+                                            guestAccessToken.token(),
+                                            sessionId,
+                                            null,
+                                            null,
+                                            CustomResponseStatus.UNAUTHORIZED_GUEST_USER,
+                                            403));
+                        }
                     });
         });
     }
 
+    private Mono<GuestUserResponse> guestCredentials() {
+        GuestUserResponse pooled = guestCredentialPool.take();
+        return pooled != null ? Mono.just(pooled) : guestUserService.createGuestUser();
+    }
+
     private AuthResponse unauthorizedAccessResponse(String accessToken, String sessionId,
             String refreshToken,
             CustomResponseStatus responseStatus) {
@@ -347,30 +393,23 @@ public class AuthServiceImpl implements AuthService {
         return Mono.just(response);
     }
 
-    private Mono<Claims> parseAccessTokenClaims(String token) {
-        return Mono.fromCallable(() -> jwtTokenProvider.getAccessTokenClaims(token))
-                .subscribeOn(Schedulers.boundedElastic());
-    }
-
-    private Mono<Claims> parseRefreshTokenClaims(String token) {
-        return Mono.fromCallable(() -> jwtTokenProvider.getRefreshTokenClaims(token))
-                .subscribeOn(Schedulers.boundedElastic());
-    }
-
-    private Mono<String> createAccessToken(String userId, String roleName) {
-        return Mono.fromCallable(() -> jwtTokenProvider.createAccessToken(userId, roleName))
-                .subscribeOn(Schedulers.boundedElastic());
+    private Mono<VerifiedToken> createAccessToken(String userId, String roleName) {
+        return cryptoScheduler.submit(CryptoScheduler.Priority.SIGNING,
+                () -> accessTokenIssuer.issue(userId, roleName));
     }
 
     private Mono<String> createRefreshToken(String userId, String roleName) {
-        return Mono.fromCallable(() -> jwtTokenProvider.createRefreshToken(userId, roleName))
-                .subscribeOn(Schedulers.boundedElastic());
+        return cryptoScheduler.submit(CryptoScheduler.Priority.SIGNING,
+                () -> jwtTokenProvider.createRefreshToken(userId, roleName));
     }
 
     private Mono<String> createServiceToken(String userId, String roleName, List<String> services,
             List<String> destinations) {
-        return Mono.fromCallable(
-                        () -> jwtTokenProvider.createServiceToken(userId, roleName, services, destinations))
-                .subscribeOn(Schedulers.boundedElastic());
+        String cached = serviceTokenCache.get(userId, roleName, services, destinations);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return cryptoScheduler.submit(CryptoScheduler.Priority.SIGNING,
+                () -> serviceTokenCache.sign(userId, roleName, services, destinations));
     }
 }
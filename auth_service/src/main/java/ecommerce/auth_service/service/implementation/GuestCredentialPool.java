@@ -0,0 +1,189 @@
+package ecommerce.auth_service.service.implementation;
+
+import com.sun.management.OperatingSystemMXBean;
+import ecommerce.auth_service.dto.GuestUserResponse;
+import ecommerce.auth_service.metrics.MetricsSource;
+import ecommerce.auth_service.security.CryptoOverloadedException;
+import ecommerce.auth_service.security.CryptoScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of pre-minted guest credentials, so a cookie-less request can skip signing a
+ * token inline. Refills are minted on {@link CryptoScheduler} at BACKGROUND priority, so they
+ * queue behind request work and stay off the shared scheduling thread. A refill only starts
+ * while system CPU load is below idle-cpu-threshold and the previous one has finished; under
+ * load the producer skips its turn and requests mint inline again.
+ * <p>
+ * Entries are handed out oldest first and dropped once older than max-age-ms, which keeps the
+ * remaining lifetime of a pooled token close to that of a freshly signed one.
+ */
+@Component
+@Slf4j
+public class GuestCredentialPool implements MetricsSource {
+
+    private final GuestUserServiceImpl guestUserService;
+
+    private final CryptoScheduler cryptoScheduler;
+
+    private final OperatingSystemMXBean operatingSystem =
+            ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+
+    private final Queue<PooledCredential> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger minting = new AtomicInteger();
+
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder minted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxAgeMillis;
+    private final double idleCpuThreshold;
+
+    private long lastSampleMinted;
+    private long lastSampleNanos = System.nanoTime();
+    private volatile double refillsPerSecond;
+
+    public GuestCredentialPool(GuestUserServiceImpl guestUserService,
+            CryptoScheduler cryptoScheduler,
+            @Value("${guest-pool.enabled:true}") boolean enabled,
+            @Value("${guest-pool.capacity:512}") int capacity,
+            @Value("${guest-pool.batch-size:32}") int batchSize,
+            @Value("${guest-pool.max-age-ms:60000}") long maxAgeMillis,
+            @Value("${guest-pool.idle-cpu-threshold:0.5}") double idleCpuThreshold) {
+        this.guestUserService = guestUserService;
+        this.cryptoScheduler = cryptoScheduler;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.idleCpuThreshold = idleCpuThreshold;
+    }
+
+    /**
+     * @return a pre-minted guest credential, or null when the caller has to mint one itself
+     */
+    public GuestUserResponse take() {
+        long now = System.currentTimeMillis();
+        PooledCredential pooled;
+        while ((pooled = entries.poll()) != null) {
+            depth.decrementAndGet();
+            if (pooled.mintedAtMillis() + maxAgeMillis > now) {
+                taken.increment();
+                return pooled.credential();
+            }
+            expired.increment();
+        }
+        fallbacks.increment();
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${guest-pool.refill-interval-ms:200}")
+    public void refill() {
+        if (!enabled) {
+            return;
+        }
+        dropExpired();
+        if (minting.get() > 0 || depth.get() >= capacity) {
+            return;
+        }
+        // getCpuLoad is negative when the platform cannot tell; treat that as idle
+        if (operatingSystem.getCpuLoad() >= idleCpuThreshold) {
+            throttled.increment();
+            return;
+        }
+        int wanted = Math.min(batchSize, capacity - depth.get());
+        for (int i = 0; i < wanted; i++) {
+            if (!submitMint()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false when the crypto queue refused the task, which it does before returning
+     */
+    private boolean submitMint() {
+        AtomicBoolean refused = new AtomicBoolean();
+        minting.incrementAndGet();
+        cryptoScheduler.submit(CryptoScheduler.Priority.BACKGROUND,
+                        guestUserService::mintGuestUser)
+                .doFinally(signal -> minting.decrementAndGet())
+                .subscribe(credential -> {
+                    entries.offer(new PooledCredential(credential, System.currentTimeMillis()));
+                    depth.incrementAndGet();
+                    minted.increment();
+                }, e -> {
+                    if (e instanceof CryptoOverloadedException) {
+                        refused.set(true);
+                        throttled.increment();
+                    } else {
+                        log.warn("Could not pre-mint guest credential: {}", e.getMessage());
+                    }
+                });
+        return !refused.get();
+    }
+
+    private void dropExpired() {
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        PooledCredential head;
+        while ((head = entries.peek()) != null && head.mintedAtMillis() <= cutoff) {
+            if (entries.remove(head)) {
+                depth.decrementAndGet();
+                expired.increment();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${guest-pool.stats-interval-ms:60000}")
+    public synchronized void reportStats() {
+        long now = System.nanoTime();
+        long mintedCount = minted.sum();
+        refillsPerSecond = (mintedCount - lastSampleMinted) * 1_000_000_000.0
+                / (now - lastSampleNanos);
+        lastSampleMinted = mintedCount;
+        lastSampleNanos = now;
+        if (enabled) {
+            log.info("Guest credential pool: depth={} refillsPerSecond={} fallbacks={}",
+                    depth.get(), "%.1f".formatted(refillsPerSecond), fallbacks.sum());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "guestCredentialPool";
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("depth", String.valueOf(depth.get()));
+        snapshot.put("capacity", String.valueOf(capacity));
+        snapshot.put("taken", String.valueOf(taken.sum()));
+        snapshot.put("fallbacks", String.valueOf(fallbacks.sum()));
+        snapshot.put("minted", String.valueOf(minted.sum()));
+        snapshot.put("refillsPerSecond", "%.1f".formatted(refillsPerSecond));
+        snapshot.put("expired", String.valueOf(expired.sum()));
+        snapshot.put("throttled", String.valueOf(throttled.sum()));
+        return snapshot;
+    }
+
+    private record PooledCredential(GuestUserResponse credential, long mintedAtMillis) {
+    }
+}
@@ -1,50 +1,82 @@
 package ecommerce.auth_service.service.implementation;
 
-import ecommerce.auth_service.dto.BaseResponse;
-import ecommerce.auth_service.repository.GuestUserRepository;
-import ecommerce.auth_service.repository.SessionRepository;
+import ecommerce.auth_service.dto.GuestUserResponse;
+import ecommerce.auth_service.security.CryptoOverloadedException;
+import ecommerce.auth_service.security.CryptoScheduler;
+import ecommerce.auth_service.security.HmacDigester;
 import ecommerce.auth_service.security.JwtTokenProvider;
+import ecommerce.auth_service.security.VerifiedToken;
 import ecommerce.auth_service.service.GuestUserService;
 import ecommerce.auth_service.util.Roles;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.UUID;
+
+/**
+ * Guests are stateless. A guest gets a signed JWT with the GUEST_USER role and a session id
+ * that is an HMAC of that token, so the pair can be checked without touching Redis and an
+ * anonymous visit writes nothing. Guests always get JWTs, whatever access-token.format says,
+ * because an opaque handle only means something through the session store.
+ * <p>
+ * Nothing stores guest state later either: the only stateful actions a guest can take are
+ * register and login, and both create the user's own session.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class GuestUserServiceImpl implements GuestUserService {
 
-    private final JwtTokenProvider tokenProvider;
+    public static final String STATELESS_SESSION_PREFIX = "g.";
+
+    // Keeps guest session MACs apart from the session id digests stored in Redis
+    private static final String SESSION_CONTEXT = "guest-session:";
+
+    private final JwtTokenProvider jwtTokenProvider;
 
-    private final GuestUserRepository guestUserRepository;
+    private final CryptoScheduler cryptoScheduler;
 
-    private final SessionRepository sessionRepository;
+    @Qualifier("sessionDigester")
+    private final HmacDigester sessionDigester;
 
     @Override
-    public Mono<BaseResponse> createGuestUser() {
-        BaseResponse userResponse = new BaseResponse();
-        return guestUserRepository.saveGuestUser(Roles.GUEST_USER.name())
-                .flatMap(guestUserDTO -> {
-                    String accessToken = tokenProvider.createAccessToken(guestUserDTO.getUserId(),
-                            Roles.GUEST_USER.name());
-                    return sessionRepository.saveSession(accessToken)
-                            .flatMap(savedSession -> {
-                                userResponse.setAccessToken(accessToken);
-                                userResponse.setSessionId(savedSession.getSessionId());
-                                return Mono.just(userResponse);
-                            });
-                })
-                .onErrorResume(e -> {
+    public Mono<GuestUserResponse> createGuestUser() {
+        return cryptoScheduler.submit(CryptoScheduler.Priority.SIGNING, this::mintGuestUser)
+                .onErrorResume(e -> !(e instanceof CryptoOverloadedException), e -> {
                     log.error("Error creating guest user", e);
                     return Mono.error(
                             new RuntimeException("Error creating guest user and session", e));
                 });
     }
 
-    public Mono<Boolean> validateGuestUser(String userId) {
-        return guestUserRepository.validateGuestUser(userId, Roles.GUEST_USER.name());
+    /**
+     * Signs a guest access token and derives its session id on the calling thread.
+     */
+    public GuestUserResponse mintGuestUser() {
+        VerifiedToken accessToken = jwtTokenProvider.issueAccessToken(
+                UUID.randomUUID().toString(), Roles.GUEST_USER.name());
+        return new GuestUserResponse(accessToken, sessionIdFor(accessToken.token()));
+    }
+
+    public static boolean isStatelessSession(String sessionId) {
+        return sessionId.startsWith(STATELESS_SESSION_PREFIX);
+    }
+
+    /**
+     * Constant-time check that sessionId was issued together with this guest access token.
+     */
+    public boolean matchesStatelessSession(VerifiedToken accessToken, String sessionId) {
+        return isStatelessSession(sessionId)
+                && Roles.GUEST_USER.name().equals(accessToken.role())
+                && sessionDigester.matches(SESSION_CONTEXT + accessToken.token(),
+                sessionId.substring(STATELESS_SESSION_PREFIX.length()));
+    }
+
+    private String sessionIdFor(String accessToken) {
+        return STATELESS_SESSION_PREFIX + sessionDigester.digest(SESSION_CONTEXT + accessToken);
     }
 
 }
@@ -1,9 +1,10 @@
 package ecommerce.auth_service.service.implementation;
 
 import ecommerce.auth_service.security.JwtTokenProvider;
-import ecommerce.auth_service.service.MonitoringClient;
+import ecommerce.auth_service.security.VerifiedToken;
 import ecommerce.auth_service.service.ReactiveJwtValidationService;
-import ecommerce.auth_service.util.EventType;
+import ecommerce.common.monitoring.EventType;
+import ecommerce.common.monitoring.MonitoringClient;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -19,38 +20,40 @@ public class ReactiveJwtValidationServiceImpl implements ReactiveJwtValidationSe
     private final MonitoringClient monitoringClient;
 
     @Override
-    public Mono<Boolean> validateAccessToken(String accessToken, String userAgent,
+    public Mono<VerifiedToken> validateAccessToken(String accessToken, String userAgent,
             String clientCity,
             Map<String, String> metadata) {
-        return validateToken(accessToken, jwtTokenProvider::validateAccessToken, userAgent,
+        return validateToken(accessToken, jwtTokenProvider::verifyAccessToken, userAgent,
                 clientCity, metadata);
     }
 
     @Override
-    public Mono<Boolean> validateRefreshToken(String refreshToken, String userAgent,
+    public Mono<VerifiedToken> validateRefreshToken(String refreshToken, String userAgent,
             String clientCity,
             Map<String, String> metadata) {
-        return validateToken(refreshToken, jwtTokenProvider::validateRefreshToken, userAgent,
+        return validateToken(refreshToken, jwtTokenProvider::verifyRefreshToken, userAgent,
                 clientCity, metadata);
     }
 
     @Override
-    public Mono<Boolean> validateServiceToken(String serviceToken, String userAgent,
+    public Mono<VerifiedToken> validateServiceToken(String serviceToken, String userAgent,
             String clientCity,
             Map<String, String> metadata) {
-        return validateToken(serviceToken, jwtTokenProvider::validateServiceToken, userAgent,
+        return validateToken(serviceToken, jwtTokenProvider::verifyServiceToken, userAgent,
                 clientCity, metadata);
     }
 
-    private Mono<Boolean> validateToken(String token,
-            Function<String, Boolean> validator,
+    private Mono<VerifiedToken> validateToken(String token,
+            Function<String, VerifiedToken> verifier,
             String userAgent,
             String clientCity, Map<String, String> metadata) {
+        if (token == null || token.isEmpty()) {
+            return Mono.empty();
+        }
         try {
-            boolean valid = validator.apply(token);
-            return Mono.just(valid);
+            return Mono.just(verifier.apply(token));
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
-            return Mono.just(false);
+            return Mono.empty();
         } catch (io.jsonwebtoken.JwtException e) {
             monitoringClient.sendEvent(
                     EventType.INVALID_JWT_FORMAT,
@@ -60,7 +63,7 @@ public class ReactiveJwtValidationServiceImpl implements ReactiveJwtValidationSe
                     clientCity,
                     "Invalid JWT token format: " + e.getMessage(),
                     metadata);
-            return Mono.just(false);
+            return Mono.empty();
         }
     }
 }
@@ -1,20 +1,22 @@
 package ecommerce.auth_service.service.implementation;
 
 import ecommerce.auth_service.domain.RefreshToken;
+import ecommerce.auth_service.metrics.ValidateMetrics;
 import ecommerce.auth_service.repository.RefreshTokenRepository;
-import ecommerce.auth_service.security.JwtTokenProvider;
-import ecommerce.auth_service.service.MonitoringClient;
+import ecommerce.auth_service.security.HmacDigester;
+import ecommerce.auth_service.security.VerifiedToken;
 import ecommerce.auth_service.service.ReactiveJwtValidationService;
 import ecommerce.auth_service.service.RefreshTokenService;
-import ecommerce.auth_service.util.EventType;
-import ecommerce.auth_service.util.TokenHashUtil;
+import ecommerce.common.monitoring.EventType;
+import ecommerce.common.monitoring.MonitoringClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+
+import java.util.Objects;
 
 @Service
 @Slf4j
@@ -22,120 +24,99 @@ import reactor.core.scheduler.Schedulers;
 public class RefreshTokenServiceImpl implements RefreshTokenService {
 
     private final RefreshTokenRepository refreshTokenRepository;
-    private final JwtTokenProvider jwtTokenProvider;
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
-    private final BCryptPasswordEncoder passwordEncoder;
+    @Qualifier("refreshTokenDigester")
+    private final HmacDigester refreshTokenDigester;
     private final MonitoringClient monitoringClient;
     private final ReactiveJwtValidationService jwtValidationService;
+    private final ValidateMetrics validateMetrics;
 
     @Override
-    public Mono<Boolean> validateRefreshToken(
+    public Mono<VerifiedToken> validateRefreshToken(
             String refreshToken,
             String userAgent,
             String clientCity) {
 
         return jwtValidationService
                 .validateRefreshToken(refreshToken, userAgent, clientCity, null)
-                .flatMap(isValidToken -> {
-                    if (!isValidToken) {
-                        return Mono.just(false);
-                    }
-                    return parseRefreshTokenClaims(refreshToken)
-                            .flatMap(claims -> {
-                                String userId = claims.getSubject();
-                                String hashedToken = TokenHashUtil.hash(refreshToken);
-                                return refreshTokenRepository
-                                        .findByUserIdAndUserAgentAndClientCity(
-                                                userId, userAgent, clientCity)
-                                        .flatMap(storedToken -> matchesRefreshToken(
-                                                hashedToken,
-                                                storedToken.getRefreshToken())
-                                                .flatMap(isMatch -> {
-
-                                                    if (isMatch) {
-                                                        return Mono.just(true);
-                                                    }
-                                                    monitoringClient.sendEvent(
-                                                            EventType.FAILED_REFRESH_TOKEN_MATCH,
-                                                            "AUTH_SERVICE",
-                                                            userId,
-                                                            userAgent,
-                                                            clientCity,
-                                                            "Refresh token hash mismatch - possible token theft",
-                                                            null);
+                .flatMap(verified -> {
+                    String userId = verified.subject();
+                    return validateMetrics.holdingConnection(refreshTokenRepository
+                                    .findByTokenDigest(refreshTokenDigester.digest(refreshToken)))
+                            .switchIfEmpty(Mono.defer(() -> {
+                                monitoringClient.sendEvent(
+                                        EventType.FAILED_REFRESH_TOKEN_MATCH,
+                                        "AUTH_SERVICE",
+                                        userId,
+                                        userAgent,
+                                        clientCity,
+                                        "Refresh token not found - possible token theft",
+                                        null);
 
-                                                    return Mono.just(false);
-                                                }))
-                                        .switchIfEmpty(Mono.defer(() -> {
-                                            monitoringClient.sendEvent(
-                                                    EventType.FAILED_REFRESH_TOKEN_MATCH,
-                                                    "AUTH_SERVICE",
-                                                    userId,
-                                                    userAgent,
-                                                    clientCity,
-                                                    "Refresh token not found - possible token theft",
-                                                    null);
+                                return Mono.empty();
+                            }))
+                            .flatMap(storedToken -> {
+                                if (isSameDevice(storedToken, userId, userAgent, clientCity)) {
+                                    return Mono.just(verified);
+                                }
+                                monitoringClient.sendEvent(
+                                        EventType.FAILED_REFRESH_TOKEN_MATCH,
+                                        "AUTH_SERVICE",
+                                        userId,
+                                        userAgent,
+                                        clientCity,
+                                        "Refresh token used from another device - possible token theft",
+                                        null);
 
-                                            return Mono.just(false);
-                                        }));
+                                return Mono.empty();
                             });
                 })
                 .onErrorResume(e -> {
                     log.error("Error in validating refresh token", e);
-                    return Mono.just(false);
+                    return Mono.empty();
                 });
     }
 
     @Override
     public Mono<Boolean> deleteByRefreshToken(String refreshToken) {
-        return refreshTokenRepository.deleteByRefreshToken(refreshToken)
-                .then(Mono.just(true))
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Mono.just(false);
+        }
+        return validateMetrics.holdingConnection(refreshTokenRepository
+                        .deleteByTokenDigest(refreshTokenDigester.digest(refreshToken)))
+                .map(deletedRows -> deletedRows > 0)
                 .onErrorResume(e -> Mono.error(
-                        new RuntimeException("Failed to delete session by sessionId", e)));
+                        new RuntimeException("Failed to delete refresh token", e)));
     }
 
     @Override
     public Mono<RefreshToken> createOrUpdateRefreshToken(String userId, String refreshToken,
             String userAgent,
             String clientCity) {
-        return refreshTokenRepository.findByUserIdAndUserAgentAndClientCity(userId, userAgent,
-                        clientCity)
-                .flatMap(existingToken -> {
-                    existingToken.setRefreshToken(refreshToken);
-                    return refreshTokenRepository.save(existingToken);
-                })
-                .switchIfEmpty(Mono.defer(
-                        () -> createRefreshToken(userId, refreshToken, userAgent, clientCity)));
+        return refreshTokenRepository.upsertForDevice(userId,
+                refreshTokenDigester.digest(refreshToken), userAgent, clientCity);
     }
 
     @Override
-    public Mono<RefreshToken> updateRefreshToken(String userId, String refreshToken,
-            String userAgent,
-            String clientCity) {
-        return refreshTokenRepository.findByUserIdAndUserAgentAndClientCity(userId, userAgent,
-                        clientCity)
-                .flatMap(existing -> {
-                    existing.setRefreshToken(refreshToken);
-                    return refreshTokenRepository.save(existing);
-                });
+    public Mono<RefreshToken> rotateRefreshToken(String oldRefreshToken, String newRefreshToken) {
+        return validateMetrics.holdingConnection(refreshTokenRepository.rotate(
+                refreshTokenDigester.digest(oldRefreshToken),
+                refreshTokenDigester.digest(newRefreshToken)));
     }
 
     @Override
     public Mono<RefreshToken> createRefreshToken(String userId, String refreshToken,
             String userAgent,
             String clientCity) {
-        RefreshToken newRefreshToken =
-                new RefreshToken(userId, refreshToken, userAgent, clientCity);
+        RefreshToken newRefreshToken = new RefreshToken(userId,
+                refreshTokenDigester.digest(refreshToken), userAgent, clientCity);
         return r2dbcEntityTemplate.insert(RefreshToken.class).using(newRefreshToken);
     }
 
-    private Mono<Boolean> matchesRefreshToken(String rawHashedToken, String storedToken) {
-        return Mono.fromCallable(() -> passwordEncoder.matches(rawHashedToken, storedToken))
-                .subscribeOn(Schedulers.boundedElastic());
-    }
-
-    private Mono<io.jsonwebtoken.Claims> parseRefreshTokenClaims(String refreshToken) {
-        return Mono.fromCallable(() -> jwtTokenProvider.getRefreshTokenClaims(refreshToken))
-                .subscribeOn(Schedulers.boundedElastic());
+    private boolean isSameDevice(RefreshToken storedToken, String userId, String userAgent,
+            String clientCity) {
+        return Objects.equals(storedToken.getUserId(), userId)
+                && Objects.equals(storedToken.getUserAgent(), userAgent)
+                && Objects.equals(storedToken.getClientCity(), clientCity);
     }
 }
@@ -0,0 +1,206 @@
+package ecommerce.auth_service.service.implementation;
+
+import ecommerce.auth_service.ProtoRevocation;
+import ecommerce.auth_service.service.RevocationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.stream.StreamReceiver;
+import org.springframework.data.redis.stream.StreamReceiver.StreamReceiverOptions;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds revoked session digests to gateways that verify access tokens locally.
+ * <p>
+ * Revocations are appended to a Redis stream that every auth_service instance follows, so a
+ * gateway receives the same revocations whichever instance it is connected to. The stream is
+ * trimmed to the access token lifetime on every append. Each instance reads the retained
+ * entries on startup and after a lost connection, then blocks for new ones from the last entry
+ * it has seen, so nothing is skipped while it reconnects.
+ * <p>
+ * A new subscriber first receives the retained history and a heartbeat whose coveredSince tells
+ * it from which point in time the history is complete. Gateways only trust local verification
+ * for tokens issued after that point. History is bounded both by count and by the access token
+ * lifetime; dropping an entry early moves coveredSince forward so coverage stays honest.
+ * Heartbeats are held back while the stream is not being followed, which makes gateways treat
+ * the feed as stale instead of trusting a feed that has stopped receiving revocations.
+ */
+@Service
+@Slf4j
+public class RevocationServiceImpl implements RevocationService {
+
+    private static final String STREAM_KEY = "revocations";
+    private static final String DIGEST = "digest";
+    private static final String REVOKED_AT = "revokedAt";
+
+    private final Sinks.Many<ProtoRevocation> sink = Sinks.many().multicast().directBestEffort();
+
+    private final Deque<ProtoRevocation> history = new ArrayDeque<>();
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final StreamReceiver<String, MapRecord<String, String, String>> streamReceiver;
+    private final int historySize;
+    private final int subscriberBuffer;
+    private final long accessTokenLifetimeMillis;
+    private final Duration heartbeatInterval;
+
+    // The stream keeps every revocation within the token lifetime, so once it has been read
+    // the history is complete unless the count bound drops entries
+    private long coveredSince = 0;
+    private String lastReadId = "0-0";
+    private volatile boolean following;
+
+    private Disposable subscription;
+
+    public RevocationServiceImpl(ReactiveRedisTemplate<String, String> redisTemplate,
+            ReactiveRedisConnectionFactory connectionFactory,
+            @Value("${revocation-feed.history-size:100000}") int historySize,
+            @Value("${revocation-feed.subscriber-buffer:10000}") int subscriberBuffer,
+            @Value("${revocation-feed.heartbeat:15s}") Duration heartbeatInterval,
+            @Value("${jwt.access.expiration}") long accessTokenLifetimeMillis) {
+        this.redisTemplate = redisTemplate;
+        this.streamReceiver = StreamReceiver.create(connectionFactory,
+                StreamReceiverOptions.builder().pollTimeout(Duration.ofSeconds(2)).build());
+        this.historySize = historySize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.heartbeatInterval = heartbeatInterval;
+        this.accessTokenLifetimeMillis = accessTokenLifetimeMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.defer(this::follow)
+                .doOnError(e -> {
+                    following = false;
+                    log.warn("Revocation stream lost: {}", e.getMessage());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    @Override
+    public Mono<Void> revoke(String accessTokenDigest) {
+        long now = System.currentTimeMillis();
+        // Entries older than an access token's lifetime only protect tokens that expired already
+        XAddOptions trimExpired = XAddOptions.none()
+                .minId(RecordId.of(now - accessTokenLifetimeMillis, 0));
+        return redisTemplate.opsForStream()
+                .add(StreamRecords.string(Map.of(
+                                DIGEST, accessTokenDigest,
+                                REVOKED_AT, String.valueOf(now)))
+                        .withStreamKey(STREAM_KEY), trimExpired)
+                .then();
+    }
+
+    @Override
+    public Flux<ProtoRevocation> revocations() {
+        // Subscribe to live revocations before copying the history so nothing falls in between;
+        // duplicates are harmless for the gateway's filter
+        Flux<ProtoRevocation> live = sink.asFlux()
+                .onBackpressureBuffer(subscriberBuffer,
+                        dropped -> log.warn("Revocation subscriber too slow, closing its stream"));
+
+        Flux<ProtoRevocation> snapshot = Flux.defer(() -> Flux.fromIterable(snapshot()));
+
+        Flux<ProtoRevocation> heartbeats = Flux.interval(heartbeatInterval)
+                .filter(tick -> following)
+                .map(tick -> heartbeat());
+
+        return Flux.merge(live, snapshot, heartbeats);
+    }
+
+    private Flux<Void> follow() {
+        // Catch up on what was appended since the last entry read, then block for new entries
+        Flux<MapRecord<String, String, String>> retained = redisTemplate
+                .<String, String>opsForStream()
+                .range(STREAM_KEY, Range.rightUnbounded(Range.Bound.exclusive(lastReadId)));
+        return retained.doOnNext(this::accept)
+                .thenMany(Flux.defer(() -> {
+                    following = true;
+                    return streamReceiver.receive(
+                            StreamOffset.create(STREAM_KEY, ReadOffset.from(lastReadId)));
+                }))
+                .doOnNext(this::accept)
+                .thenMany(Flux.empty());
+    }
+
+    private synchronized void accept(MapRecord<String, String, String> entry) {
+        lastReadId = entry.getId().getValue();
+        Map<String, String> fields = entry.getValue();
+        ProtoRevocation revocation = ProtoRevocation.newBuilder()
+                .setDigest(fields.getOrDefault(DIGEST, ""))
+                .setRevokedAt(Long.parseLong(fields.getOrDefault(REVOKED_AT, "0")))
+                .build();
+        if (revocation.getDigest().isEmpty()) {
+            return;
+        }
+
+        pruneHistory(System.currentTimeMillis());
+        if (history.size() >= historySize) {
+            // Tokens issued before this revocation can no longer be vouched for by the feed
+            coveredSince = history.removeFirst().getRevokedAt();
+        }
+        history.addLast(revocation);
+
+        Sinks.EmitResult result = sink.tryEmitNext(revocation);
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.warn("Could not publish revocation: {}", result);
+        }
+    }
+
+    private synchronized List<ProtoRevocation> snapshot() {
+        pruneHistory(System.currentTimeMillis());
+        List<ProtoRevocation> revocations = new ArrayList<>(history.size() + 1);
+        revocations.addAll(history);
+        if (following) {
+            revocations.add(heartbeat());
+        }
+        return revocations;
+    }
+
+    private synchronized ProtoRevocation heartbeat() {
+        return ProtoRevocation.newBuilder()
+                .setRevokedAt(System.currentTimeMillis())
+                .setCoveredSince(coveredSince)
+                .build();
+    }
+
+    private void pruneHistory(long now) {
+        // Entries older than an access token's lifetime only protect tokens that expired already
+        while (!history.isEmpty()
+                && history.peekFirst().getRevokedAt() + accessTokenLifetimeMillis < now) {
+            history.removeFirst();
+        }
+    }
+}
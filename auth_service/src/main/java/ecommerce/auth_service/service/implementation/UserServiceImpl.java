@@ -7,24 +7,28 @@ import ecommerce.auth_service.dto.UserDTO;
 import ecommerce.auth_service.dto.UserResponse;
 import ecommerce.auth_service.repository.SessionRepository;
 import ecommerce.auth_service.repository.UserRepository;
+import ecommerce.auth_service.security.AccessTokenIssuer;
+import ecommerce.auth_service.security.CryptoOverloadedException;
+import ecommerce.auth_service.security.CryptoScheduler;
 import ecommerce.auth_service.security.InputValidator;
 import ecommerce.auth_service.security.JwtTokenProvider;
-import ecommerce.auth_service.service.MonitoringClient;
+import ecommerce.auth_service.security.LoginThrottle;
+import ecommerce.auth_service.security.PasswordHasher;
+import ecommerce.auth_service.security.VerifiedToken;
 import ecommerce.auth_service.service.RefreshTokenService;
 import ecommerce.auth_service.service.UserService;
 import ecommerce.auth_service.util.CustomResponseStatus;
-import ecommerce.auth_service.util.EventType;
 import ecommerce.auth_service.util.Roles;
-import ecommerce.auth_service.util.TokenHashUtil;
+import ecommerce.common.monitoring.EventType;
+import ecommerce.common.monitoring.MonitoringClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -34,14 +38,18 @@ import java.util.Map;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final R2dbcEntityTemplate entityTemplate;
     private final SessionRepository sessionRepository;
-    private final TransactionalOperator transactionalOperator;
     private final JwtTokenProvider tokenProvider;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final AccessTokenIssuer accessTokenIssuer;
+    private final PasswordHasher passwordHasher;
     private final InputValidator validatorService;
     private final RefreshTokenService refreshTokenService;
     private final MonitoringClient monitoringClient;
+    private final CryptoScheduler cryptoScheduler;
+    private final LoginThrottle loginThrottle;
+
+    @Value("${login-throttle.refusal-delay:300ms}")
+    private final Duration throttledResponseDelay;
 
     @Override
     public Mono<UserResponse> createUser(Map<String, String> data, Map<String, String> metadata) {
@@ -54,13 +62,7 @@ public class UserServiceImpl implements UserService {
         return validateInput(email, password, rePassword)
                 .flatMap(errors -> !errors.isEmpty()
                         ? badRequest(errors.toString())
-                        : userRepository.findUserDtoByEmail(email)
-                        .flatMap(__ -> badRequest("User already exists"))
-                        .switchIfEmpty(Mono.defer(
-                                () -> registerUser(email, password,
-                                        userAgent,
-                                        clientCity))))
-                .as(transactionalOperator::transactional)
+                        : registerUser(email, password, userAgent, clientCity))
                 .onErrorResume(this::handleUnexpectedError);
     }
 
@@ -72,53 +74,80 @@ public class UserServiceImpl implements UserService {
         String password = data.get("password");
         String userAgent = metadata.getOrDefault("userAgent", "");
         String clientCity = metadata.getOrDefault("clientCity", "");
+        String clientAddress = metadata.getOrDefault("clientAddress", "");
 
         return validateInput(email, password)
                 .flatMap(errors -> {
                     if (!errors.isEmpty()) {
                         return badRequest(errors.toString());
                     }
-                    return userRepository.findUserByEmail(email)
-                            .flatMap(user -> checkPassword(password, user)
-                                    .flatMap(matches -> {
-
-                                        if (matches) {
-                                            return issueTokens(
-                                                    user.getUserId(),
-                                                    email,
-                                                    userAgent,
-                                                    clientCity,
-                                                    "Logged in successfully");
-                                        }
-                                        monitoringClient.sendEvent(
-                                                EventType.FAILED_LOGIN_ATTEMPT,
-                                                "AUTH_SERVICE",
+                    return loginThrottle.isBlocked(email, clientAddress)
+                            .flatMap(blocked -> blocked
+                                    ? refuseThrottledLogin(email, userAgent, clientCity, metadata)
+                                    : checkCredentials(email, password, userAgent, clientCity,
+                                    metadata));
+                })
+                .onErrorResume(this::handleUnexpectedError);
+    }
+
+    private Mono<UserResponse> checkCredentials(String email, String password, String userAgent,
+            String clientCity, Map<String, String> metadata) {
+        return userRepository.findUserByEmail(email)
+                .flatMap(user -> checkPassword(password, user)
+                        .flatMap(matches -> {
+
+                            if (matches) {
+                                return loginThrottle.recordSuccess(email)
+                                        .then(issueTokens(
                                                 user.getUserId(),
-                                                userAgent,
-                                                clientCity,
                                                 email,
-                                                metadata);
-
-                                        return badRequest(
-                                                "Email or password is incorrect");
-                                    }))
-                            .switchIfEmpty(
-                                    Mono.defer(() -> {
-                                        monitoringClient.sendEvent(
-                                                EventType.FAILED_LOGIN_ATTEMPT,
-                                                "AUTH_SERVICE",
-                                                "",
                                                 userAgent,
                                                 clientCity,
-                                                email,
-                                                metadata);
+                                                "Logged in successfully"))
+                                        .doOnSuccess(response -> upgradePasswordHash(user,
+                                                password).subscribe());
+                            }
+                            return failLogin(user.getUserId(), email, userAgent, clientCity,
+                                    metadata);
+                        }))
+                .switchIfEmpty(Mono.defer(
+                        () -> failLogin("", email, userAgent, clientCity, metadata)));
+    }
 
-                                        return badRequest(
-                                                "Email or password is incorrect");
-                                    }));
-                })
-                .as(transactionalOperator::transactional)
-                .onErrorResume(this::handleUnexpectedError);
+    private Mono<UserResponse> failLogin(String userId, String email, String userAgent,
+            String clientCity, Map<String, String> metadata) {
+        monitoringClient.sendEvent(
+                EventType.FAILED_LOGIN_ATTEMPT,
+                "AUTH_SERVICE",
+                userId,
+                userAgent,
+                clientCity,
+                email,
+                metadata);
+
+        return loginThrottle.recordFailure(email, metadata.getOrDefault("clientAddress", ""))
+                .then(badRequest("Email or password is incorrect"));
+    }
+
+    /**
+     * Answers after the same fixed delay whatever the state of the account, so the refusal
+     * costs no CPU and its timing reveals nothing.
+     */
+    private Mono<UserResponse> refuseThrottledLogin(String email, String userAgent,
+            String clientCity, Map<String, String> metadata) {
+        monitoringClient.sendEvent(
+                EventType.SUSPICIOUS_ACTIVITY,
+                "AUTH_SERVICE",
+                "",
+                userAgent,
+                clientCity,
+                "Login refused by throttle: " + email,
+                metadata);
+        UserResponse response = new UserResponse();
+        response.setMessage("Too many failed login attempts, try again later");
+        response.setResponseStatus(CustomResponseStatus.TOO_MANY_REQUESTS);
+        response.setStatusCode(429);
+        return Mono.delay(throttledResponseDelay).thenReturn(response);
     }
 
     @Override
@@ -136,58 +165,85 @@ public class UserServiceImpl implements UserService {
         throw new UnsupportedOperationException("updateUser not yet implemented");
     }
 
+    /**
+     * Hashes first and then claims the email with a single conflict-aware INSERT, so no
+     * connection is held while the password is hashed and no transaction is needed. A taken
+     * email costs the same hash as a new one, which keeps the two indistinguishable by timing.
+     */
     private Mono<UserResponse> registerUser(String email, String password, String userAgent,
             String clientCity) {
         return encodePassword(password)
                 .flatMap(encodedPassword -> {
                     User newUser = new User(email, encodedPassword, Roles.USER.name());
-                    return entityTemplate.insert(User.class).using(newUser)
-                            .flatMap(saved -> issueTokens(
-                                    saved.getUserId(), email, userAgent, clientCity,
-                                    "User created successfully"));
-                });
+                    return userRepository.insertIfEmailAvailable(newUser.getUserId(), email,
+                            encodedPassword, newUser.getRoleName());
+                })
+                .flatMap(saved -> issueTokens(
+                        saved.getUserId(), email, userAgent, clientCity,
+                        "User created successfully"))
+                .switchIfEmpty(Mono.defer(() -> badRequest("User already exists")));
     }
 
     private Mono<UserResponse> issueTokens(String userId, String email, String userAgent,
             String clientCity, String message) {
-        String accessToken = tokenProvider.createAccessToken(userId, Roles.USER.name());
-        String refreshToken = tokenProvider.createRefreshToken(userId, Roles.USER.name());
+        return cryptoScheduler.submit(CryptoScheduler.Priority.SIGNING,
+                        () -> Tuples.of(accessTokenIssuer.issue(userId, Roles.USER.name()),
+                                tokenProvider.createRefreshToken(userId, Roles.USER.name())))
+                .flatMap(tokens -> {
+                    VerifiedToken accessToken = tokens.getT1();
+                    String refreshToken = tokens.getT2();
 
-        return encodeRefreshToken(refreshToken)
-                .flatMap(encodedRefreshToken -> {
                     Mono<RefreshToken> saveRefreshToken = refreshTokenService
-                            .createOrUpdateRefreshToken(userId,
-                                    encodedRefreshToken, userAgent,
+                            .createOrUpdateRefreshToken(userId, refreshToken, userAgent,
                                     clientCity);
 
                     Mono<Session> saveSession = sessionRepository.saveSession(accessToken);
 
                     return Mono.zip(saveRefreshToken, saveSession)
                             .map(tuple -> buildSuccessResponse(
-                                    email, accessToken, refreshToken,
+                                    email, accessToken.token(), refreshToken,
                                     tuple.getT2().getSessionId(), message))
                             .doOnError(e -> {
                                 log.error("Failed to persist tokens for userId={}: {}",
                                         userId, e.getMessage(), e);
-                                sessionRepository.deleteByAccessToken(accessToken)
+                                sessionRepository.deleteByAccessToken(accessToken.token())
                                         .subscribe();
                             });
                 });
     }
 
     private Mono<String> encodePassword(String rawPassword) {
-        return Mono.fromCallable(() -> passwordEncoder.encode(rawPassword))
-                .subscribeOn(Schedulers.boundedElastic());
+        return cryptoScheduler.submit(CryptoScheduler.Priority.PASSWORD_HASHING,
+                () -> passwordHasher.hash(rawPassword));
     }
 
-    private Mono<String> encodeRefreshToken(String rawRefreshToken) {
-        return Mono.fromCallable(() -> passwordEncoder.encode(TokenHashUtil.hash(rawRefreshToken)))
-                .subscribeOn(Schedulers.boundedElastic());
+    private Mono<Boolean> checkPassword(String rawPassword, User user) {
+        return cryptoScheduler.submit(CryptoScheduler.Priority.PASSWORD_HASHING,
+                () -> passwordHasher.matches(rawPassword, user.getPassword()));
     }
 
-    private Mono<Boolean> checkPassword(String rawPassword, User user) {
-        return Mono.fromCallable(() -> passwordEncoder.matches(rawPassword, user.getPassword()))
-                .subscribeOn(Schedulers.boundedElastic());
+    /**
+     * Re-hashes a just-verified password when its stored hash is weaker than the current
+     * setting. Subscribed on its own once the login has been answered, and run as background
+     * work on the crypto pool, so the login never waits for it. Best effort: a failure,
+     * including a crypto queue too busy for background work, leaves the old hash in place for
+     * the next login.
+     */
+    private Mono<Void> upgradePasswordHash(User user, String rawPassword) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return Mono.empty();
+        }
+        return cryptoScheduler.submit(CryptoScheduler.Priority.BACKGROUND,
+                        () -> passwordHasher.hash(rawPassword))
+                .flatMap(newHash -> userRepository.upgradePasswordHash(
+                        user.getUserId(), user.getPassword(), newHash))
+                .filter(updated -> updated > 0)
+                .doOnNext(updated -> log.info("Upgraded password hash for userId={}",
+                        user.getUserId()))
+                .doOnError(e -> log.warn("Could not upgrade password hash for userId={}: {}",
+                        user.getUserId(), e.getMessage()))
+                .onErrorComplete()
+                .then();
     }
 
     private Mono<List<String>> validateInput(String email, String password, String rePassword) {
@@ -220,6 +276,14 @@ public class UserServiceImpl implements UserService {
     }
 
     private Mono<UserResponse> handleUnexpectedError(Throwable e) {
+        if (e instanceof CryptoOverloadedException) {
+            log.warn("Rejected user request: {}", e.getMessage());
+            UserResponse response = new UserResponse();
+            response.setMessage("Service overloaded, try again later");
+            response.setResponseStatus(CustomResponseStatus.SERVICE_OVERLOADED);
+            response.setStatusCode(503);
+            return Mono.just(response);
+        }
         log.error("Unexpected error in UserService: {}", e.getMessage(), e);
         UserResponse response = new UserResponse();
         response.setMessage("Unexpected error");
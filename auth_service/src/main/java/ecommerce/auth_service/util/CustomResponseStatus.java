@@ -35,5 +35,13 @@ public enum CustomResponseStatus {
      * When unexpected error occurs
      */
     UNEXPECTED_ERROR,
+    /**
+     * When the crypto queue is full and the request was turned away without being processed
+     */
+    SERVICE_OVERLOADED,
+    /**
+     * When a login is refused because the email or client has too many recent failures
+     */
+    TOO_MANY_REQUESTS,
 
 }
@@ -1,21 +0,0 @@
-package ecommerce.auth_service.util;
-
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.Base64;
-
-public class TokenHashUtil {
-
-    private TokenHashUtil() {
-    }
-
-    public static String hash(String token) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to hash token", e);
-        }
-    }
-}
\ No newline at end of file
@@ -0,0 +1,11 @@
+-- Writes a session and its reverse index in one atomic step.
+-- KEYS[1] session key (digest of the access token)
+-- KEYS[2] index key (session-index:<session id digest>)
+-- ARGV[1] session id digest, ARGV[2] ttl in seconds
+-- ARGV[3] user id, ARGV[4] role, ARGV[5] access token expiry in epoch millis; opaque access
+-- tokens are resolved from these fields alone
+redis.call('HSET', KEYS[1], 'sessionId', ARGV[1], 'userId', ARGV[3], 'role', ARGV[4],
+    'expiresAt', ARGV[5])
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+redis.call('SET', KEYS[2], KEYS[1], 'EX', ARGV[2])
+return 1
@@ -0,0 +1,13 @@
+-- Deletes the session a session id belongs to via the reverse index.
+-- KEYS[1] index key (session-index:<session id digest>)
+-- Returns the deleted session key, or false when there was none.
+-- The session key is read from the index, so this targets a standalone Redis, not a cluster.
+local sessionKey = redis.call('GET', KEYS[1])
+if not sessionKey then
+    return false
+end
+redis.call('DEL', KEYS[1])
+if redis.call('DEL', sessionKey) == 1 then
+    return sessionKey
+end
+return false
@@ -0,0 +1,14 @@
+-- Deletes a session by its key together with its reverse index entry.
+-- KEYS[1] session key
+-- ARGV[1] index key prefix
+-- Returns 1 when a session was deleted, 0 otherwise.
+local digest = redis.call('HGET', KEYS[1], 'sessionId')
+if not digest then
+    return 0
+end
+redis.call('DEL', KEYS[1])
+-- Legacy bcrypt entries were never indexed
+if string.sub(digest, 1, 2) ~= '$2' then
+    redis.call('DEL', ARGV[1] .. digest)
+end
+return 1
@@ -0,0 +1,29 @@
+-- Deletes the session of an access token and the session a session id points to, together
+-- with their reverse index entries.
+-- KEYS[1] session key, KEYS[2] index key of the presented session id
+-- ARGV[1] index key prefix
+-- Returns the deleted session keys separated by spaces (base64 keys contain no spaces),
+-- or an empty string when nothing was deleted.
+local deleted = {}
+
+local function deleteSession(sessionKey)
+    local digest = redis.call('HGET', sessionKey, 'sessionId')
+    if not digest then
+        return
+    end
+    redis.call('DEL', sessionKey)
+    if string.sub(digest, 1, 2) ~= '$2' then
+        redis.call('DEL', ARGV[1] .. digest)
+    end
+    table.insert(deleted, sessionKey)
+end
+
+deleteSession(KEYS[1])
+
+local indexedKey = redis.call('GET', KEYS[2])
+redis.call('DEL', KEYS[2])
+if indexedKey and indexedKey ~= KEYS[1] then
+    deleteSession(indexedKey)
+end
+
+return table.concat(deleted, ' ')
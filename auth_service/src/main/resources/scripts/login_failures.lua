@@ -0,0 +1,26 @@
+-- Sliding-window login failure counters shared by all auth instances. Each key is a hash of
+-- bucket number -> failures in that bucket.
+-- KEYS[1..n] identity keys (login-failures:<kind>:<digest>)
+-- ARGV[1] current bucket number, ARGV[2] buckets per window, ARGV[3] ttl in seconds,
+-- ARGV[4] '1' to record a failure in the current bucket first, '0' to only count
+-- Returns the failure count within the window for each key, space-separated in KEYS order.
+local current = tonumber(ARGV[1])
+local oldest = current - tonumber(ARGV[2]) + 1
+local counts = {}
+for i, key in ipairs(KEYS) do
+    if ARGV[4] == '1' then
+        redis.call('HINCRBY', key, ARGV[1], 1)
+        redis.call('EXPIRE', key, ARGV[3])
+    end
+    local total = 0
+    local buckets = redis.call('HGETALL', key)
+    for j = 1, #buckets, 2 do
+        if tonumber(buckets[j]) < oldest then
+            redis.call('HDEL', key, buckets[j])
+        else
+            total = total + tonumber(buckets[j + 1])
+        end
+    end
+    counts[i] = tostring(total)
+end
+return table.concat(counts, ' ')
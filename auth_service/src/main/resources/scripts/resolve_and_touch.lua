@@ -0,0 +1,16 @@
+-- Resolves an opaque access token: checks the presented session id against the stored digest,
+-- records the access and returns the session's claims.
+-- KEYS[1] session key
+-- ARGV[1] presented session id digest, ARGV[2] current time in epoch millis
+-- Returns '0' on mismatch, missing session or expiry, otherwise
+-- '1 <userId> <role> <expiresAt>' (none of the fields contain spaces).
+local fields = redis.call('HMGET', KEYS[1], 'sessionId', 'userId', 'role', 'expiresAt')
+local stored, userId, role, expiresAt = fields[1], fields[2], fields[3], fields[4]
+if not stored or not userId or not role or not expiresAt then
+    return '0'
+end
+if stored ~= ARGV[1] or tonumber(expiresAt) <= tonumber(ARGV[2]) then
+    return '0'
+end
+redis.call('HSET', KEYS[1], 'lastSeen', ARGV[2])
+return '1 ' .. userId .. ' ' .. role .. ' ' .. expiresAt
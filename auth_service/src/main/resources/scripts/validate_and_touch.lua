@@ -0,0 +1,18 @@
+-- Checks a presented session id against the stored digest and records the access.
+-- KEYS[1] session key
+-- ARGV[1] presented session id digest, ARGV[2] current time in epoch millis
+-- Returns '1' on match, '0' on mismatch or missing session, or the stored hash when it is a
+-- legacy bcrypt entry that the caller has to check itself.
+local stored = redis.call('HGET', KEYS[1], 'sessionId')
+if not stored then
+    return '0'
+end
+if string.sub(stored, 1, 2) == '$2' then
+    return stored
+end
+-- Lua strings are interned, so this comparison does not leak how many bytes matched
+if stored ~= ARGV[1] then
+    return '0'
+end
+redis.call('HSET', KEYS[1], 'lastSeen', ARGV[2])
+return '1'
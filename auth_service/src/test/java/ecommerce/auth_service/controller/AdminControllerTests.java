@@ -0,0 +1,121 @@
+package ecommerce.auth_service.controller;
+
+import ecommerce.auth_service.ProtoRequest;
+import ecommerce.auth_service.ProtoResponse;
+import ecommerce.auth_service.metrics.MetricsSource;
+import ecommerce.auth_service.security.JwtAlgorithm;
+import ecommerce.auth_service.security.JwtTokenProvider;
+import ecommerce.auth_service.security.PermissionMatrix;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdminControllerTests {
+
+    private static final String ADMIN_ID = "3f2b8c9e-1d4a-4e6b-9a7c-5d8e2f1b0c3a";
+
+    private static JwtTokenProvider tokenProvider;
+
+    private PermissionMatrix permissionMatrix;
+    private AdminController controller;
+
+    @BeforeAll
+    static void keys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        tokenProvider = new JwtTokenProvider(
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                900_000, 604_800_000, 60_000);
+    }
+
+    @BeforeEach
+    void setUp() {
+        permissionMatrix = mock(PermissionMatrix.class);
+        when(permissionMatrix.reload()).thenReturn(Mono.empty());
+        MetricsSource pool = mock(MetricsSource.class);
+        when(pool.getName()).thenReturn("pool");
+        when(pool.snapshot()).thenReturn(Map.of("acquired", "3"));
+        controller = new AdminController(tokenProvider, permissionMatrix, List.of(pool));
+    }
+
+    @Test
+    void reloadsForAnAdminTokenIssuedForTheRoute() {
+        ProtoResponse response = controller.reloadPermissions(
+                request("ADMIN", "AUTH_SERVICE", "RELOAD_PERMISSIONS")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        verify(permissionMatrix).reload();
+    }
+
+    @Test
+    void refusesAnAdminTokenIssuedForMonitoring() {
+        ProtoResponse response = controller.reloadPermissions(
+                request("ADMIN", "MONITORING_SERVICE", "QUERY_EVENTS")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(403);
+        verify(permissionMatrix, never()).reload();
+    }
+
+    @Test
+    void refusesAnAdminTokenIssuedForAnotherAdminRoute() {
+        ProtoResponse response = controller.reloadPermissions(
+                request("ADMIN", "AUTH_SERVICE", "READ_METRICS")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(403);
+        verify(permissionMatrix, never()).reload();
+    }
+
+    @Test
+    void refusesARouteTokenIssuedToAnotherRole() {
+        ProtoResponse response = controller.metrics(
+                request("USER", "AUTH_SERVICE", "READ_METRICS")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(403);
+        assertThat(response.getDataMap()).isEmpty();
+    }
+
+    @Test
+    void returnsMetricsForAnAdminTokenIssuedForTheRoute() {
+        ProtoResponse response = controller.metrics(
+                request("ADMIN", "AUTH_SERVICE", "READ_METRICS")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getDataMap()).containsEntry("pool.acquired", "3");
+    }
+
+    @Test
+    void refusesAMissingOrForgedToken() {
+        assertThat(controller.metrics(ProtoRequest.getDefaultInstance()).block().getStatusCode())
+                .isEqualTo(403);
+        ProtoRequest forged = ProtoRequest.newBuilder()
+                .putMetadata("serviceToken", "not.a.token")
+                .build();
+        assertThat(controller.metrics(forged).block().getStatusCode()).isEqualTo(403);
+    }
+
+    private static ProtoRequest request(String role, String service, String destination) {
+        return ProtoRequest.newBuilder()
+                .putMetadata("serviceToken", tokenProvider.createServiceToken(ADMIN_ID, role,
+                        List.of(service), List.of(destination)))
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package ecommerce.auth_service.repository;
+
+import ecommerce.auth_service.security.CryptoScheduler;
+import ecommerce.auth_service.security.HmacDigester;
+import ecommerce.auth_service.security.JwtAlgorithm;
+import ecommerce.auth_service.security.JwtTokenProvider;
+import ecommerce.auth_service.security.VerifiedToken;
+import ecommerce.auth_service.service.RevocationService;
+import ecommerce.auth_service.service.implementation.GuestUserServiceImpl;
+import ecommerce.auth_service.util.Roles;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Redis memory growth from anonymous hits, before and after guests became stateless. Before, a
+ * cookie-less hit stored a guest key and created a session through SessionRepository.saveSession;
+ * that path is replayed here with unsigned tokens, since Redis only keeps a digest of the token.
+ * After, a hit is GuestUserServiceImpl.createGuestUser. Needs a Redis without TLS or a password
+ * and empties the database it uses (15 unless -Dredis.database is given). Opt-in, and the after
+ * run signs every guest token, so at the default million hits it takes several minutes:
+ * <pre>
+ * docker run --rm -p 6379:6379 redis:7
+ * mvn test -Dtest=GuestMemoryBenchmark -Dbenchmark=true [-Dguest.hits=... -Dredis.host=...]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GuestMemoryBenchmark {
+
+    private static final int HITS = Integer.getInteger("guest.hits", 1_000_000);
+    private static final int CONCURRENCY = 64;
+
+    @Test
+    void anonymousHits() throws Exception {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("redis.database", 15));
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        CryptoScheduler cryptoScheduler = new CryptoScheduler(
+                Runtime.getRuntime().availableProcessors(), 1024);
+        ReactiveRedisConnection connection = connectionFactory.getReactiveConnection();
+        try {
+            ReactiveRedisTemplate<String, String> redisTemplate = new ReactiveRedisTemplate<>(
+                    connectionFactory, RedisSerializationContext.string());
+            HmacDigester digester = new HmacDigester(
+                    Base64.getEncoder().encodeToString(new byte[32]));
+            SessionRepository sessionRepository = new SessionRepository(redisTemplate,
+                    new BCryptPasswordEncoder(), digester, mock(RevocationService.class),
+                    cryptoScheduler);
+            GuestUserServiceImpl guestUserService =
+                    new GuestUserServiceImpl(provider(), cryptoScheduler, digester);
+
+            System.out.printf("%-7s %10s %12s %16s%n", "path", "hits", "keys added",
+                    "bytes/hit");
+            measure(connection, "before", i -> redisTemplate.opsForValue()
+                    .set(UUID.randomUUID().toString(), Roles.GUEST_USER.name(),
+                            Duration.ofHours(24))
+                    .then(sessionRepository.saveSession(guestToken())));
+            measure(connection, "after", i -> guestUserService.createGuestUser());
+        } finally {
+            connection.serverCommands().flushDb().block();
+            connection.close();
+            cryptoScheduler.shutdown();
+            connectionFactory.destroy();
+        }
+    }
+
+    private static void measure(ReactiveRedisConnection connection, String path,
+            IntFunction<Mono<?>> hit) {
+        connection.serverCommands().flushDb().block();
+        long keysBefore = connection.serverCommands().dbSize().block();
+        long memoryBefore = usedMemory(connection);
+        Flux.range(0, HITS)
+                .flatMap(i -> Mono.defer(() -> hit.apply(i)), CONCURRENCY)
+                .blockLast();
+        long keys = connection.serverCommands().dbSize().block() - keysBefore;
+        double perHit = (double) (usedMemory(connection) - memoryBefore) / HITS;
+        System.out.printf("%-7s %10d %12d %16.1f%n", path, HITS, keys, perHit);
+    }
+
+    private static long usedMemory(ReactiveRedisConnection connection) {
+        return Long.parseLong(connection.serverCommands().info("memory")
+                .block()
+                .getProperty("used_memory"));
+    }
+
+    private static VerifiedToken guestToken() {
+        return new VerifiedToken("benchmark-" + UUID.randomUUID(), Jwts.claims()
+                .subject(UUID.randomUUID().toString())
+                .add("role", Roles.GUEST_USER.name())
+                .expiration(new Date(System.currentTimeMillis() + 900_000))
+                .build());
+    }
+
+    private static JwtTokenProvider provider() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        return new JwtTokenProvider(
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                privateKey, publicKey, JwtAlgorithm.ES256, "",
+                900_000, 604_800_000, 60_000);
+    }
+}
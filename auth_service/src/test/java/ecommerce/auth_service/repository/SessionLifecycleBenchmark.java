@@ -0,0 +1,110 @@
+package ecommerce.auth_service.repository;
+
+import ecommerce.auth_service.domain.Session;
+import ecommerce.auth_service.security.CryptoScheduler;
+import ecommerce.auth_service.security.HmacDigester;
+import ecommerce.auth_service.security.VerifiedToken;
+import ecommerce.auth_service.service.RevocationService;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency of the session lifecycle steps, each one script call, against a real Redis at
+ * concurrency 1, 64 and 512. Needs a Redis without TLS or a password, which it writes
+ * throwaway session keys to. Opt-in:
+ * <pre>
+ * docker run --rm -p 6379:6379 redis:7
+ * mvn test -Dtest=SessionLifecycleBenchmark -Dbenchmark=true [-Dredis.host=... -Dredis.port=...]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SessionLifecycleBenchmark {
+
+    private static final int OPERATIONS = 20_000;
+    private static final int[] CONCURRENCY = {1, 64, 512};
+
+    @Test
+    void lifecycleLatency() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(System.getProperty("redis.host", "localhost"),
+                        Integer.getInteger("redis.port", 6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        CryptoScheduler cryptoScheduler = new CryptoScheduler(1, 1024);
+        try {
+            RevocationService revocationService = mock(RevocationService.class);
+            when(revocationService.revoke(anyString())).thenReturn(Mono.empty());
+            SessionRepository repository = new SessionRepository(
+                    new ReactiveRedisTemplate<>(connectionFactory,
+                            RedisSerializationContext.string()),
+                    new BCryptPasswordEncoder(),
+                    new HmacDigester(Base64.getEncoder().encodeToString(new byte[32])),
+                    revocationService,
+                    cryptoScheduler);
+
+            System.out.printf("%-11s %11s %10s %10s %10s%n", "step", "concurrency", "p50 us",
+                    "p99 us", "ops/sec");
+            for (int concurrency : CONCURRENCY) {
+                List<VerifiedToken> tokens = Flux.range(0, OPERATIONS)
+                        .map(i -> accessToken())
+                        .collectList()
+                        .block();
+                Session[] sessions = new Session[OPERATIONS];
+
+                measure("create", concurrency, i -> repository.saveSession(tokens.get(i))
+                        .doOnNext(session -> sessions[i] = session));
+                measure("validate", concurrency, i -> repository.validateSession(
+                        sessions[i].getAccessToken(), sessions[i].getSessionId()));
+                measure("invalidate", concurrency, i -> repository.invalidatePair(
+                        sessions[i].getAccessToken(), sessions[i].getSessionId()));
+            }
+        } finally {
+            cryptoScheduler.shutdown();
+            connectionFactory.destroy();
+        }
+    }
+
+    private static void measure(String step, int concurrency, IntFunction<Mono<?>> operation) {
+        long[] latencies = new long[OPERATIONS];
+        long start = System.nanoTime();
+        Flux.range(0, OPERATIONS)
+                .flatMap(i -> Mono.defer(() -> {
+                    long issued = System.nanoTime();
+                    return operation.apply(i)
+                            .doOnTerminate(() -> latencies[i] = System.nanoTime() - issued);
+                }), concurrency)
+                .blockLast();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%-11s %11d %10.0f %10.0f %10.0f%n", step, concurrency,
+                latencies[OPERATIONS / 2] / 1e3, latencies[OPERATIONS * 99 / 100] / 1e3,
+                OPERATIONS / seconds);
+    }
+
+    private static VerifiedToken accessToken() {
+        return new VerifiedToken("benchmark-" + UUID.randomUUID(), Jwts.claims()
+                .subject(UUID.randomUUID().toString())
+                .add("role", "USER")
+                .expiration(new Date(System.currentTimeMillis() + 900_000))
+                .build());
+    }
+}
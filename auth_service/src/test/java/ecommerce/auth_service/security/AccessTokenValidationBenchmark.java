@@ -0,0 +1,77 @@
+package ecommerce.auth_service.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+
+/**
+ * Compares the token work of validating one access token before and after verified tokens were
+ * carried through the pipeline: a parser built per call verifying the token twice, against
+ * JwtTokenProvider's cached parser verifying it once. Reports CPU time per validation on one
+ * thread. Opt-in:
+ * <pre>
+ * mvn test -Dtest=AccessTokenValidationBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AccessTokenValidationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final long ROUND_NANOS = 2_000_000_000L;
+
+    @Test
+    void validatePerRequest() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(4096);
+        KeyPair keyPair = generator.generateKeyPair();
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        JwtTokenProvider provider = new JwtTokenProvider(
+                privateKey, publicKey, JwtAlgorithm.RS512, "",
+                privateKey, publicKey, JwtAlgorithm.RS512, "",
+                privateKey, publicKey, JwtAlgorithm.RS512, "",
+                900_000, 604_800_000, 60_000);
+        String token = provider.createAccessToken("3f2b8c9e-1d4a-4e6b-9a7c-5d8e2f1b0c3a", "USER");
+
+        Runnable before = () -> {
+            // validateAccessToken, then parseAccessTokenClaims, each with a fresh parser
+            for (int i = 0; i < 2; i++) {
+                Jwts.parser()
+                        .verifyWith(keyPair.getPublic())
+                        .clockSkewSeconds(60)
+                        .build()
+                        .parseSignedClaims(token);
+            }
+        };
+        Runnable after = () -> provider.verifyAccessToken(token);
+
+        System.out.printf("%-8s %18s%n", "path", "CPU us/validation");
+        System.out.printf("%-8s %18.1f%n", "before", cpuMicros(before));
+        System.out.printf("%-8s %18.1f%n", "after", cpuMicros(after));
+    }
+
+    private static double cpuMicros(Runnable validation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(validation);
+        }
+        long cpuBefore = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+        long count = run(validation);
+        long cpu = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - cpuBefore;
+        return cpu / 1000.0 / count;
+    }
+
+    private static long run(Runnable validation) {
+        long deadline = System.nanoTime() + ROUND_NANOS;
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+            validation.run();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CryptoSchedulerTests {
+
+    private final CryptoScheduler scheduler = new CryptoScheduler(1, 4);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void runsWaitingTasksByPriority() {
+        occupyTheOnlyThread();
+        Mono<String> hashing = scheduler.submit(CryptoScheduler.Priority.PASSWORD_HASHING,
+                () -> "hashing").cache();
+        Mono<Long> validation = scheduler.submit(CryptoScheduler.Priority.VALIDATION,
+                System::nanoTime).cache();
+        Mono<Long> hashingDone = hashing.map(done -> System.nanoTime());
+        hashing.subscribe();
+        validation.subscribe();
+
+        release.countDown();
+
+        assertThat(validation.block(Duration.ofSeconds(5)))
+                .isLessThan(hashingDone.block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void refusesBackgroundWorkOnceHalfTheQueueIsTaken() {
+        occupyTheOnlyThread();
+        scheduler.submit(CryptoScheduler.Priority.SIGNING, () -> 1).subscribe();
+        scheduler.submit(CryptoScheduler.Priority.SIGNING, () -> 2).subscribe();
+
+        assertThatThrownBy(() -> scheduler.submit(CryptoScheduler.Priority.BACKGROUND, () -> 3)
+                .block(Duration.ofSeconds(5)))
+                .isInstanceOf(CryptoOverloadedException.class);
+
+        Mono<Integer> signing = scheduler.submit(CryptoScheduler.Priority.SIGNING, () -> 4)
+                .cache();
+        signing.subscribe();
+        release.countDown();
+        assertThat(signing.block(Duration.ofSeconds(5))).isEqualTo(4);
+    }
+
+    private void occupyTheOnlyThread() {
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(CryptoScheduler.Priority.VALIDATION, () -> {
+            started.countDown();
+            release.await();
+            return true;
+        }).subscribe();
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
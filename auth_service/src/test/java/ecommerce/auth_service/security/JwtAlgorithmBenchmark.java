@@ -0,0 +1,85 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Times signing and verification of access tokens with each JwtAlgorithm through
+ * JwtTokenProvider, and reports the size of the Cookie header a browser sends back with the
+ * access token, refresh token and session id. RS512 uses a 4096-bit key, as setup.sh generates.
+ * Opt-in, as RSA key generation and signing take a while:
+ * <pre>
+ * mvn test -Dtest=JwtAlgorithmBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtAlgorithmBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+    private static final String USER_ID = "3f2b8c9e-1d4a-4e6b-9a7c-5d8e2f1b0c3a";
+
+    @Test
+    void everyAlgorithm() throws Exception {
+        System.out.printf("%-8s %12s %14s %14s %14s%n", "algo", "token chars", "signs/sec",
+                "verifies/sec", "cookie bytes");
+        for (JwtAlgorithm algorithm : JwtAlgorithm.values()) {
+            JwtTokenProvider provider = provider(algorithm);
+            String accessToken = provider.createAccessToken(USER_ID, "USER");
+            String refreshToken = provider.createRefreshToken(USER_ID, "USER");
+            String cookie = "accessToken=" + accessToken + "; refreshToken=" + refreshToken
+                    + "; sessionId=" + UUID.randomUUID();
+
+            double signs = perSecond(() -> provider.createAccessToken(USER_ID, "USER"));
+            double verifies = perSecond(() -> provider.verifyAccessToken(accessToken));
+            System.out.printf("%-8s %12d %14.0f %14.0f %14d%n", algorithm, accessToken.length(),
+                    signs, verifies, cookie.length());
+        }
+    }
+
+    private static JwtTokenProvider provider(JwtAlgorithm algorithm) throws Exception {
+        KeyPairGenerator generator =
+                KeyPairGenerator.getInstance(algorithm.getKeyFactoryAlgorithm());
+        switch (algorithm) {
+            case RS512 -> generator.initialize(4096);
+            case ES256 -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+            case ED25519 -> {
+            }
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        return new JwtTokenProvider(
+                privateKey, publicKey, algorithm, "",
+                privateKey, publicKey, algorithm, "",
+                privateKey, publicKey, algorithm, "",
+                900_000, 604_800_000, 60_000);
+    }
+
+    private static double perSecond(Supplier<?> operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(operation);
+        }
+        long start = System.nanoTime();
+        long count = run(operation);
+        return count * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static long run(Supplier<?> operation) {
+        long deadline = System.nanoTime() + ROUND_NANOS;
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+            operation.get();
+            count++;
+        }
+        return count;
+    }
+}
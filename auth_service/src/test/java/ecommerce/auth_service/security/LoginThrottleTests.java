@@ -0,0 +1,135 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginThrottleTests {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private ReactiveRedisTemplate<String, String> redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(ReactiveRedisTemplate.class);
+        when(redisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+        redisDown();
+    }
+
+    @Test
+    void blocksEmailAtLimitFromLocalCountsWhenRedisIsDown() {
+        LoginThrottle throttle = throttle(900_000, 15);
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("user@example.com", "10.0.0." + i).block();
+        }
+        assertThat(throttle.isBlocked("user@example.com", "10.0.0.9").block()).isFalse();
+
+        throttle.recordFailure("User@Example.com ", "10.0.0.9").block();
+
+        assertThat(throttle.isBlocked("user@example.com", "10.0.0.10").block()).isTrue();
+        assertThat(throttle.isBlocked("other@example.com", "10.0.0.10").block()).isFalse();
+    }
+
+    @Test
+    void blocksClientAddressAcrossEmails() {
+        LoginThrottle throttle = throttle(900_000, 15);
+        for (int i = 0; i < 20; i++) {
+            throttle.recordFailure("user" + i + "@example.com", "203.0.113.7").block();
+        }
+
+        assertThat(throttle.isBlocked("fresh@example.com", "203.0.113.7").block()).isTrue();
+        assertThat(throttle.isBlocked("fresh@example.com", "203.0.113.8").block()).isFalse();
+    }
+
+    @Test
+    void loginWithoutAddressIsOnlyCountedAgainstEmail() {
+        LoginThrottle throttle = throttle(900_000, 15);
+        for (int i = 0; i < 20; i++) {
+            throttle.recordFailure("user" + i + "@example.com", "").block();
+        }
+
+        assertThat(throttle.isBlocked("fresh@example.com", "").block()).isFalse();
+    }
+
+    @Test
+    void successClearsEmailButNotClientAddress() {
+        LoginThrottle throttle = throttle(900_000, 15);
+        for (int i = 0; i < 20; i++) {
+            throttle.recordFailure(i < 5 ? "user@example.com" : "user" + i + "@example.com",
+                    "203.0.113.7").block();
+        }
+
+        throttle.recordSuccess("user@example.com").block();
+
+        assertThat(throttle.isBlocked("user@example.com", "198.51.100.1").block()).isFalse();
+        assertThat(throttle.isBlocked("user@example.com", "203.0.113.7").block()).isTrue();
+    }
+
+    @Test
+    void failuresLeaveTheWindowOnceTheirBucketsExpire() throws InterruptedException {
+        LoginThrottle throttle = throttle(300, 3);
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("user@example.com", "10.0.0.1").block();
+        }
+        assertThat(throttle.isBlocked("user@example.com", "10.0.0.1").block()).isTrue();
+
+        Thread.sleep(450);
+
+        assertThat(throttle.isBlocked("user@example.com", "10.0.0.1").block()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sharedCountsFromRedisBlockWithoutLocalFailures() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just("5 0"));
+        LoginThrottle throttle = throttle(900_000, 15);
+
+        assertThat(throttle.isBlocked("user@example.com", "10.0.0.1").block()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisKeysAreKeyedDigestsOfEmailAndAddress() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just("0 0"));
+        LoginThrottle throttle = throttle(900_000, 15);
+
+        throttle.isBlocked("user@example.com", "10.0.0.1").block();
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), anyList());
+        HmacDigester digester = new HmacDigester(KEY);
+        assertThat(keys.getValue()).containsExactly(
+                "login-failures:email:" + digester.digest("login-throttle:user@example.com"),
+                "login-failures:client:" + digester.digest("login-throttle:10.0.0.1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void redisDown() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new IllegalStateException("redis down")));
+    }
+
+    private LoginThrottle throttle(long windowMillis, int buckets) {
+        return new LoginThrottle(redisTemplate, new HmacDigester(KEY), true, windowMillis,
+                buckets, 5, 20, 100_000);
+    }
+}
@@ -0,0 +1,113 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTests {
+
+    private final BCryptHashingStrategy bcrypt = new BCryptHashingStrategy();
+    private final Pbkdf2HashingStrategy pbkdf2 = new Pbkdf2HashingStrategy();
+
+    @Test
+    void verifiesHashesOfEveryRegisteredAlgorithm() {
+        PasswordHasher hasher = hasher("pbkdf2", 600_000);
+
+        assertThat(hasher.matches("password", bcrypt.hash("password", 4))).isTrue();
+        assertThat(hasher.matches("password", pbkdf2.hash("password", 500))).isTrue();
+        assertThat(hasher.matches("password", "plain-text")).isFalse();
+        assertThat(hasher.matches("password", null)).isFalse();
+    }
+
+    @Test
+    void asksForRehashOnlyForOtherAlgorithmsAndLowerCosts() {
+        PasswordHasher hasher = hasher("pbkdf2", 600_000);
+
+        assertThat(hasher.needsRehash(bcrypt.hash("password", 4))).isTrue();
+        assertThat(hasher.needsRehash(pbkdf2.hash("password", 500))).isTrue();
+        assertThat(hasher.needsRehash(pbkdf2.hash("password", 600_000))).isFalse();
+        assertThat(hasher.needsRehash(pbkdf2.hash("password", 800_000))).isFalse();
+        assertThat(hasher.needsRehash(hasher.hash("password"))).isFalse();
+    }
+
+    @Test
+    void malformedStoredHashesNeitherMatchNorThrow() {
+        PasswordHasher hasher = hasher("bcrypt", 10);
+
+        for (String stored : List.of("$pbkdf2-sha256$many$c2FsdA$aGFzaA",
+                "$pbkdf2-sha256$1000$not base64$aGFzaA", "$pbkdf2-sha256$1000$only-salt",
+                "$2a$", "$2a$xx$abcdefghijklmnopqrstuv", "$2a$10$short")) {
+            assertThat(hasher.matches("password", stored)).as(stored).isFalse();
+            assertThat(hasher.needsRehash(stored)).as(stored).isTrue();
+        }
+    }
+
+    @Test
+    void calibrationPicksACandidateOfTheActiveAlgorithm() {
+        PasswordHasher hasher = new PasswordHasher(List.of(bcrypt, pbkdf2), "bcrypt", 0, 1);
+
+        assertThat(bcrypt.candidateCosts()).contains(bcrypt.costOf(hasher.hash("password")));
+        assertThat(hasher.snapshot()).containsKey("calibration.10.loginsPerSecondPerCore");
+    }
+
+    @Test
+    void calibrationNeverGoesBelowTheMinimumCost() {
+        for (PasswordHashingStrategy strategy : List.of(bcrypt, pbkdf2)) {
+            // No candidate hashes within a millisecond
+            PasswordHasher hasher = new PasswordHasher(List.of(bcrypt, pbkdf2),
+                    strategy.getId(), 0, 1);
+
+            assertThat(strategy.costOf(hasher.hash("password")))
+                    .isEqualTo(strategy.minimumCost());
+        }
+        assertThat(PasswordHasher.chooseCost(List.of(8, 9, 10, 11), 10, 250, cost -> 1))
+                .isEqualTo(11);
+        assertThat(PasswordHasher.chooseCost(List.of(8, 9, 10, 11), 10, 250, cost -> 1_000))
+                .isEqualTo(10);
+    }
+
+    @Test
+    void oneSlowSampleDoesNotEndCalibration() {
+        // The cheapest candidate was timed slow, as a cold JIT would
+        Map<Integer, Double> millis = Map.of(10, 338.8, 11, 147.1, 12, 135.4, 13, 300.0,
+                14, 600.0);
+
+        assertThat(PasswordHasher.chooseCost(List.of(10, 11, 12, 13, 14), 10, 250,
+                millis::get)).isEqualTo(12);
+    }
+
+    @Test
+    void calibrationStopsAfterTwoCandidatesInARowAreOverTheTarget() {
+        List<Integer> timed = new ArrayList<>();
+
+        PasswordHasher.chooseCost(List.of(10, 11, 12, 13, 14), 10, 250, cost -> {
+            timed.add(cost);
+            return cost >= 12 ? 500 : 100;
+        });
+
+        assertThat(timed).containsExactly(10, 11, 12, 13);
+    }
+
+    @Test
+    void rejectsAConfiguredCostBelowTheMinimum() {
+        assertThatThrownBy(() -> hasher("bcrypt", 9))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hasher("pbkdf2", 100_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsUnknownAlgorithm() {
+        assertThatThrownBy(() -> hasher("argon2", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PasswordHasher hasher(String algorithm, int cost) {
+        return new PasswordHasher(List.of(bcrypt, pbkdf2), algorithm, cost, 250);
+    }
+}
@@ -0,0 +1,46 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times every candidate cost of every hashing algorithm on this machine, which startup
+ * calibration does not do. Opt-in, as it takes about a minute:
+ * <pre>
+ * mvn test -Dtest=PasswordHashingBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PasswordHashingBenchmark {
+
+    private static final int SAMPLES = 5;
+
+    @Test
+    void everyCandidateCost() {
+        System.out.printf("%-8s %10s %12s %22s%n", "algo", "cost", "median ms",
+                "logins/sec/core");
+        for (PasswordHashingStrategy strategy : List.of(new BCryptHashingStrategy(),
+                new Pbkdf2HashingStrategy())) {
+            for (int cost : strategy.candidateCosts()) {
+                double millis = medianMillis(strategy, cost);
+                System.out.printf("%-8s %10d %12.1f %22.1f%n", strategy.getId(), cost, millis,
+                        1000 / millis);
+            }
+        }
+    }
+
+    private static double medianMillis(PasswordHashingStrategy strategy, int cost) {
+        strategy.hash("benchmark-Password-123", cost);
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            strategy.hash("benchmark-Password-123", cost);
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,53 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Pbkdf2HashingStrategyTests {
+
+    private final Pbkdf2HashingStrategy strategy = new Pbkdf2HashingStrategy();
+
+    @Test
+    void hashRoundTrips() {
+        String hash = strategy.hash("correct horse", 1_000);
+
+        assertThat(strategy.recognizes(hash)).isTrue();
+        assertThat(strategy.matches("correct horse", hash)).isTrue();
+        assertThat(strategy.matches("correct horsf", hash)).isFalse();
+    }
+
+    @Test
+    void costIsReadBackFromTheHash() {
+        assertThat(strategy.costOf(strategy.hash("password", 1_000))).isEqualTo(1_000);
+        assertThat(strategy.costOf(strategy.hash("password", 2_500))).isEqualTo(2_500);
+    }
+
+    @Test
+    void everyHashHasItsOwnSalt() {
+        String first = strategy.hash("password", 1_000);
+        String second = strategy.hash("password", 1_000);
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(strategy.matches("password", first)).isTrue();
+        assertThat(strategy.matches("password", second)).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedAndForeignHashes() {
+        String bcrypt = new BCryptHashingStrategy().hash("password", 4);
+
+        assertThat(strategy.recognizes(bcrypt)).isFalse();
+        assertThat(strategy.matches("password", "$pbkdf2-sha256$1000$only-salt")).isFalse();
+        assertThat(strategy.matches("password", "$pbkdf2-sha256$many$c2FsdA$aGFzaA")).isFalse();
+        assertThat(strategy.matches("password", "$pbkdf2-sha256$1000$c2FsdA$not base64"))
+                .isFalse();
+    }
+
+    @Test
+    void unreadableCostIsZero() {
+        assertThat(strategy.costOf("$pbkdf2-sha256$many$c2FsdA$aGFzaA")).isZero();
+        assertThat(strategy.costOf("$pbkdf2-sha256$1000")).isZero();
+        assertThat(strategy.costOf("$pbkdf2-sha256$-5$c2FsdA$aGFzaA")).isZero();
+    }
+}
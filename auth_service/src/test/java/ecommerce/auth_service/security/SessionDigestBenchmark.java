@@ -0,0 +1,61 @@
+package ecommerce.auth_service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Compares the session-id check SessionRepository.validateSession runs per authenticated
+ * request: bcrypt at the default strength it used before, against the keyed HMAC digest it uses
+ * now. Reports checks per second on one thread, which excludes the Redis round trip. Opt-in:
+ * <pre>
+ * mvn test -Dtest=SessionDigestBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SessionDigestBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final long ROUND_NANOS = 2_000_000_000L;
+
+    @Test
+    void validateSession() {
+        String sessionId = UUID.randomUUID().toString();
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        String bcryptHash = bcrypt.encode(sessionId);
+
+        HmacDigester digester = new HmacDigester(Base64.getEncoder().encodeToString(new byte[32]));
+        String digest = digester.digest(sessionId);
+
+        System.out.printf("%-8s %16s %14s%n", "check", "validations/sec", "us/validation");
+        report("bcrypt", () -> bcrypt.matches(sessionId, bcryptHash));
+        report("hmac", () -> digester.matches(sessionId, digest));
+    }
+
+    private static void report(String name, BooleanSupplier check) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(check);
+        }
+        long start = System.nanoTime();
+        long count = run(check);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8s %16.0f %14.2f%n", name, count / seconds, seconds * 1e6 / count);
+    }
+
+    private static long run(BooleanSupplier check) {
+        long deadline = System.nanoTime() + ROUND_NANOS;
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+            if (!check.getAsBoolean()) {
+                throw new IllegalStateException("Session id did not match");
+            }
+            count++;
+        }
+        return count;
+    }
+}
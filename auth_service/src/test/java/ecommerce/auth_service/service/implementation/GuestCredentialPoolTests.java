@@ -0,0 +1,107 @@
+package ecommerce.auth_service.service.implementation;
+
+import ecommerce.auth_service.dto.GuestUserResponse;
+import ecommerce.auth_service.security.CryptoScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GuestCredentialPoolTests {
+
+    // Above any CPU load the platform can report, so refills are never throttled by it
+    private static final double ALWAYS_IDLE = 2.0;
+
+    private final CryptoScheduler cryptoScheduler = new CryptoScheduler(1, 4);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> mintingThreads = new CopyOnWriteArrayList<>();
+
+    private GuestUserServiceImpl guestUserService;
+
+    @BeforeEach
+    void setUp() {
+        guestUserService = mock(GuestUserServiceImpl.class);
+        when(guestUserService.mintGuestUser()).thenAnswer(invocation -> {
+            mintingThreads.add(Thread.currentThread().getName());
+            return new GuestUserResponse(null, "g.session");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        cryptoScheduler.shutdown();
+    }
+
+    @Test
+    void mintsOnTheCryptoPoolRatherThanTheCallingThread() throws InterruptedException {
+        GuestCredentialPool pool = pool(2);
+
+        pool.refill();
+
+        awaitMinted(pool, 2);
+        assertThat(mintingThreads).hasSize(2).allMatch(name -> name.startsWith("crypto-"));
+        assertThat(pool.take()).isNotNull();
+    }
+
+    @Test
+    void skipsARefillWhileThePreviousOneIsStillMinting() throws InterruptedException {
+        GuestCredentialPool pool = pool(2);
+        occupyTheOnlyThread();
+
+        pool.refill();
+        pool.refill();
+        release.countDown();
+
+        awaitMinted(pool, 2);
+        Thread.sleep(100);
+        assertThat(mintingThreads).hasSize(2);
+    }
+
+    @Test
+    void stopsTheBatchWhenTheCryptoQueueRefusesBackgroundWork() throws InterruptedException {
+        // A queue of 4 admits 2 background tasks
+        GuestCredentialPool pool = pool(8);
+        occupyTheOnlyThread();
+
+        pool.refill();
+        release.countDown();
+
+        awaitMinted(pool, 2);
+        Thread.sleep(100);
+        assertThat(mintingThreads).hasSize(2);
+        assertThat(pool.snapshot()).containsEntry("throttled", "1");
+    }
+
+    private GuestCredentialPool pool(int batchSize) {
+        return new GuestCredentialPool(guestUserService, cryptoScheduler, true, 512, batchSize,
+                60_000, ALWAYS_IDLE);
+    }
+
+    private void occupyTheOnlyThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        cryptoScheduler.submit(CryptoScheduler.Priority.VALIDATION, () -> {
+            started.countDown();
+            release.await();
+            return true;
+        }).subscribe();
+        started.await();
+    }
+
+    private static void awaitMinted(GuestCredentialPool pool, int count)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!pool.snapshot().get("minted").equals(String.valueOf(count))) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
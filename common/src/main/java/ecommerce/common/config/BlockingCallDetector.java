@@ -0,0 +1,127 @@
+package ecommerce.common.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+import reactor.blockhound.integration.BlockHoundIntegration;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Opt-in detection of blocking calls on non-blocking threads (Netty event loops, which carry
+ * every RSocket stream, and Reactor's parallel workers). Off unless blocking-detector.mode, or
+ * BLOCKING_DETECTOR_MODE, is set:
+ * <ul>
+ * <li>report: log each blocking call with its thread, the first application frame and the
+ * stack trace, and keep going</li>
+ * <li>strict: fail the call with BlockHound's BlockingOperationError; the blockhound Maven
+ * profile runs the tests this way</li>
+ * </ul>
+ * The first application frame is the innermost ecommerce.* frame on the stack, which is not
+ * necessarily the RSocket route the call was made for.
+ * <p>
+ * Either mode also warns about tasks run through Reactor's Schedulers that keep a non-blocking
+ * thread busy for longer than blocking-detector.cpu-threshold-ms. Work that Netty runs on its
+ * event loops directly, which includes the RSocket handlers themselves, does not go through a
+ * Scheduler and is not timed.
+ * <p>
+ * BlockHound is an optional dependency, so it is only packaged by builds with the blockhound
+ * Maven profile; everything that touches it lives in {@link Integration}, which is only loaded
+ * when a mode is set and BlockHound is present. The JVM needs
+ * -XX:+AllowRedefinitionToAddDeleteMethods for BlockHound to instrument the JDK.
+ */
+@Slf4j
+public final class BlockingCallDetector {
+
+    public enum Mode {
+        OFF,
+        REPORT,
+        STRICT
+    }
+
+    private static final String APPLICATION_PACKAGE = "ecommerce.";
+
+    private BlockingCallDetector() {
+    }
+
+    public static void installIfEnabled() {
+        Mode mode = mode();
+        if (mode == Mode.OFF) {
+            return;
+        }
+        if (!ClassUtils.isPresent("reactor.blockhound.BlockHound", null)) {
+            log.error("Blocking call detection requested in {} mode, but BlockHound is not on "
+                    + "the classpath; build with -Pblockhound", mode);
+            return;
+        }
+        Integration.install();
+        long thresholdNanos = Long.parseLong(setting("blocking-detector.cpu-threshold-ms",
+                "BLOCKING_DETECTOR_CPU_THRESHOLD_MS", "50")) * 1_000_000;
+        Schedulers.onScheduleHook("blocking-detector", task -> () -> {
+            if (!Schedulers.isInNonBlockingThread()) {
+                task.run();
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed > thresholdNanos) {
+                    log.warn("Task {} held non-blocking thread {} for {} ms", task,
+                            Thread.currentThread().getName(), elapsed / 1_000_000);
+                }
+            }
+        });
+        log.warn("Blocking call detection enabled in {} mode", mode);
+    }
+
+    private static Mode mode() {
+        return Mode.valueOf(setting("blocking-detector.mode", "BLOCKING_DETECTOR_MODE", "off")
+                .toUpperCase(Locale.ROOT));
+    }
+
+    private static String setting(String property, String environmentVariable,
+            String defaultValue) {
+        String value = System.getProperty(property, System.getenv(environmentVariable));
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    /**
+     * Registered through ServiceLoader so that the allow-list applies however BlockHound gets
+     * installed, including through the JUnit platform listener.
+     */
+    public static class Integration implements BlockHoundIntegration {
+
+        private static void install() {
+            BlockHound.install();
+        }
+
+        @Override
+        public void applyTo(BlockHound.Builder builder) {
+            // Appenders write under a lock; logging is not what this mode is looking for
+            builder.allowBlockingCallsInside("ch.qos.logback.classic.Logger", "callAppenders");
+            // The first call seeds SecureRandom from the OS
+            builder.allowBlockingCallsInside("java.util.UUID", "randomUUID");
+            if (mode() == Mode.REPORT) {
+                builder.blockingMethodCallback(Integration::report);
+            }
+        }
+
+        private static void report(BlockingMethod method) {
+            Exception trace = new Exception("Blocking call " + method);
+            String frame = Arrays.stream(trace.getStackTrace())
+                    .filter(element -> element.getClassName().startsWith(APPLICATION_PACKAGE)
+                            && !element.getClassName().startsWith(
+                            BlockingCallDetector.class.getName()))
+                    .findFirst()
+                    .map(StackTraceElement::toString)
+                    .orElse("unknown");
+            log.error("Blocking call {} on {} at {}", method, Thread.currentThread().getName(),
+                    frame, trace);
+        }
+    }
+}
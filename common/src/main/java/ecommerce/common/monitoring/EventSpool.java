@@ -0,0 +1,234 @@
+package ecommerce.common.monitoring;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only spool of opaque records kept in memory-mapped segment files, so that an append is
+ * a copy into the page cache and what was appended survives a restart of the process.
+ * <p>
+ * A segment starts with the offset up to which it has been read, followed by records written as
+ * a length and the record bytes. The bytes are written before the length, and a zero length
+ * marks the end of the written part, so a record cut short by a crash is never read back. A new
+ * segment is started when a record does not fit, and a segment is deleted once it has been read
+ * to the end. Appends are refused while the spool already holds max-bytes worth of segments.
+ * <p>
+ * Segments are mapped with FileChannel, in native byte order. A mapping is only released when
+ * its buffer is garbage collected, which on Linux does not stop a read segment from being
+ * deleted.
+ * <p>
+ * Not thread-safe: appends, reads and commits must come from one consumer at a time.
+ */
+public class EventSpool implements AutoCloseable {
+
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_BYTES = Long.BYTES;
+    // Segment offsets are ints, which is what a mapped buffer is indexed by
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+    private int pendingReadOffset = -1;
+    private volatile int segmentCount;
+
+    private EventSpool(Path directory, long segmentBytes, long maxBytes) {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Invalid spool segment size: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+    }
+
+    /**
+     * Opens the spool in directory, picking up segments left unread by a previous run.
+     */
+    public static EventSpool open(Path directory, long segmentBytes, long maxBytes)
+            throws IOException {
+        EventSpool spool = new EventSpool(directory, segmentBytes, maxBytes);
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            spool.nextSequence = sequenceOf(file) + 1;
+            long size = Files.size(file);
+            if (size <= HEADER_BYTES || size > MAX_SEGMENT_BYTES) {
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = spool.map(file, size);
+            segment.recover();
+            if (segment.isFullyRead()) {
+                segment.delete();
+            } else {
+                spool.segments.addLast(segment);
+            }
+        }
+        spool.segmentCount = spool.segments.size();
+        return spool;
+    }
+
+    /**
+     * @return false when the record could not be stored because the spool is at its size cap
+     */
+    public boolean append(byte[] record) throws IOException {
+        if (record.length == 0 || Integer.BYTES + record.length > segmentBytes - HEADER_BYTES) {
+            return false;
+        }
+        Segment tail = segments.peekLast();
+        if (tail == null || !tail.fits(record.length)) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            if (tail != null) {
+                tail.memory.force();
+            }
+            tail = map(directory.resolve("%016d%s".formatted(nextSequence++, SUFFIX)),
+                    segmentBytes);
+            segments.addLast(tail);
+            segmentCount = segments.size();
+        }
+        tail.append(record);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        Segment head = segments.peekFirst();
+        return head == null || (head.isFullyRead() && segments.size() == 1);
+    }
+
+    /**
+     * Returns up to max of the oldest unread records without consuming them; {@link #commit()}
+     * consumes what the last call returned.
+     */
+    public List<byte[]> peek(int max) {
+        dropReadSegments();
+        Segment head = segments.peekFirst();
+        List<byte[]> records = new ArrayList<>();
+        if (head == null) {
+            return records;
+        }
+        int offset = head.readOffset;
+        while (records.size() < max && offset < head.writeOffset) {
+            int length = head.memory.getInt(offset);
+            byte[] record = new byte[length];
+            head.memory.get(offset + Integer.BYTES, record);
+            records.add(record);
+            offset += Integer.BYTES + length;
+        }
+        pendingReadOffset = offset;
+        return records;
+    }
+
+    public void commit() {
+        Segment head = segments.peekFirst();
+        if (head == null || pendingReadOffset < 0) {
+            return;
+        }
+        head.readOffset = pendingReadOffset;
+        head.memory.putLong(0, pendingReadOffset);
+        pendingReadOffset = -1;
+        dropReadSegments();
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    // The newest segment is kept even when read to the end, since it still takes appends
+    private void dropReadSegments() {
+        while (segments.size() > 1 && segments.peekFirst().isFullyRead()) {
+            segments.removeFirst().delete();
+            pendingReadOffset = -1;
+        }
+        segmentCount = segments.size();
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.memory.force();
+        }
+        segments.clear();
+        segmentCount = 0;
+    }
+
+    private Segment map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer memory = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            memory.order(ByteOrder.nativeOrder());
+            return new Segment(file, memory);
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final MappedByteBuffer memory;
+        private int readOffset = HEADER_BYTES;
+        private int writeOffset = HEADER_BYTES;
+
+        private Segment(Path file, MappedByteBuffer memory) {
+            this.file = file;
+            this.memory = memory;
+        }
+
+        private void recover() {
+            long committed = memory.getLong(0);
+            while ((long) writeOffset + Integer.BYTES <= memory.capacity()) {
+                int length = memory.getInt(writeOffset);
+                if (length <= 0
+                        || (long) writeOffset + Integer.BYTES + length > memory.capacity()) {
+                    break;
+                }
+                writeOffset += Integer.BYTES + length;
+            }
+            readOffset = Math.clamp(committed, HEADER_BYTES, writeOffset);
+        }
+
+        private boolean fits(int length) {
+            return (long) writeOffset + Integer.BYTES + length <= memory.capacity();
+        }
+
+        private void append(byte[] record) {
+            memory.put(writeOffset + Integer.BYTES, record);
+            memory.putInt(writeOffset, record.length);
+            writeOffset += Integer.BYTES + record.length;
+        }
+
+        private boolean isFullyRead() {
+            return readOffset >= writeOffset;
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Left behind; it is fully read and will be deleted on the next start
+            }
+        }
+    }
+}
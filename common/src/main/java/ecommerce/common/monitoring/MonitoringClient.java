@@ -1,6 +1,5 @@
-package ecommerce.auth_service.service;
+package ecommerce.common.monitoring;
 
-import ecommerce.auth_service.util.EventType;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
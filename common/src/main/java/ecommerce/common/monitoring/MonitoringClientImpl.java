@@ -0,0 +1,383 @@
+package ecommerce.common.monitoring;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.tcp.TcpClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batches events on a ring buffer and sends them to monitoring_service over mTLS, spooling
+ * them to disk while it is unreachable. Not a component: each service registers it with
+ * {@code @Import(MonitoringClientImpl.class)} and points monitoring-client.ssl at its own key
+ * pair.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class MonitoringClientImpl implements MonitoringClient {
+
+    // Spooled batches replayed per tick, so a long backlog does not keep the ring from draining
+    private static final int MAX_REPLAY_BATCHES = 16;
+
+    @Value("${services.monitoring.host:localhost}")
+    private String monitoringHost;
+
+    @Value("${services.monitoring.port:7002}")
+    private int monitoringPort;
+
+    @Value("${monitoring-client.ssl.key}")
+    private String clientKey;
+
+    @Value("${monitoring-client.ssl.cert}")
+    private String clientCert;
+
+    @Value("${spring.rsocket.client.ssl.trust-cert}")
+    private String trustCert;
+
+    @Value("${monitoring-client.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${monitoring-client.batch-size:256}")
+    private int batchSize;
+
+    @Value("${monitoring-client.flush-interval:100ms}")
+    private Duration flushInterval;
+
+    @Value("${monitoring-client.send-timeout:2s}")
+    private Duration sendTimeout;
+
+    @Value("${monitoring-client.probe-interval:1s}")
+    private Duration probeInterval;
+
+    @Value("${monitoring-client.max-probe-interval:30s}")
+    private Duration maxProbeInterval;
+
+    @Value("${monitoring-client.stats-interval:60s}")
+    private Duration statsInterval;
+
+    // When set, the counters are also sent every stats-interval as a MONITORING_CLIENT_STATS
+    // event under this service name, for services without a metrics endpoint
+    @Value("${monitoring-client.stats-event-service:}")
+    private String statsEventService;
+
+    @Value("${monitoring-client.spool.enabled:true}")
+    private boolean spoolEnabled;
+
+    @Value("${monitoring-client.spool.directory:${java.io.tmpdir}/monitoring-spool}")
+    private String spoolDirectory;
+
+    @Value("${monitoring-client.spool.segment-size:8MB}")
+    private DataSize spoolSegmentSize;
+
+    @Value("${monitoring-client.spool.max-size:256MB}")
+    private DataSize spoolMaxSize;
+
+    private final RSocketRequester.Builder requesterBuilder;
+    private volatile RSocketRequester requester;
+
+    private EventRingBuffer<ProtoMonitoringEvent> events;
+    private EventSpool spool;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder sentEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder spoolDropped = new LongAdder();
+
+    // Only touched by the drainer, which never runs concurrently with itself
+    private volatile boolean connected = true;
+    private Duration probeBackoff;
+    private long nextProbeAt;
+
+    private Disposable drainer;
+    private Disposable statsReporter;
+    private long lastReportedLost;
+
+    private Mono<RSocketRequester> initRequesterReactive() {
+
+        if (requester != null) {
+            return Mono.just(requester);
+        }
+
+        return Mono.fromCallable(() -> {
+
+                    SslContext sslContext = SslContextBuilder.forClient()
+                            .keyManager(new File(clientCert), new File(clientKey))
+                            .trustManager(new File(trustCert))
+                            .build();
+
+                    TcpClient tcpClient = TcpClient.create()
+                            .host(monitoringHost)
+                            .port(monitoringPort)
+                            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                            .secure(ssl -> ssl.sslContext(sslContext));
+
+                    // No connector-level reconnect: a send waits at most send-timeout, and the
+                    // next probe connects afresh
+                    return requesterBuilder
+                            .transport(TcpClientTransport.create(tcpClient));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(req -> requester = req)
+                .onErrorResume(e -> {
+                    log.error("MonitoringClient initialization failed", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Builds the event and puts it on the ring buffer; no Mono, subscription or scheduler task
+     * is created per event. When the ring is full the event is dropped and counted.
+     */
+    @Override
+    public Mono<Void> sendEvent(
+            EventType eventType,
+            String serviceName,
+            String userId,
+            String userAgent,
+            String clientCity,
+            String details,
+            Map<String, String> metadata) {
+
+        ProtoMonitoringEvent.Builder builder = ProtoMonitoringEvent.newBuilder()
+                .setEventType(eventType.name())
+                .setServiceName(serviceName)
+                .setUserId(userId != null ? userId : "")
+                .setUserAgent(userAgent != null ? userAgent : "")
+                .setClientCity(clientCity != null ? clientCity : "")
+                .setDetails(details != null ? details : "")
+                .setTimestamp(Instant.now().toString());
+
+        if (metadata != null && !metadata.isEmpty()) {
+            builder.putAllMetadata(metadata);
+        }
+
+        if (events.offer(builder.build())) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+        return Mono.empty();
+    }
+
+    @PostConstruct
+    public void start() {
+        events = new EventRingBuffer<>(bufferSize);
+        if (spoolEnabled) {
+            try {
+                spool = EventSpool.open(Path.of(spoolDirectory), spoolSegmentSize.toBytes(),
+                        spoolMaxSize.toBytes());
+            } catch (IOException e) {
+                log.error("Monitoring spool unavailable; events are dropped while monitoring "
+                        + "is unreachable", e);
+            }
+        }
+        drainer = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain(), 1)
+                .subscribe();
+        statsReporter = Flux.interval(statsInterval).subscribe(tick -> reportStats());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (drainer != null) {
+            drainer.dispose();
+        }
+        if (statsReporter != null) {
+            statsReporter.dispose();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    /**
+     * Sends everything queued, batch-size events per fire-and-forget frame. Only ever runs one
+     * at a time, as the ring buffer and the spool require of their consumer.
+     * <p>
+     * The first failed send marks monitoring as down. From then on, and while the spool still
+     * holds events, every tick moves the whole ring into the spool without touching the network,
+     * so events reach monitoring in the order they were raised and the ring never fills up
+     * waiting on a reconnect. While down, the spool is only replayed when a probe is due; probes
+     * back off from probe-interval up to max-probe-interval, and every send gives up after
+     * send-timeout.
+     */
+    private Mono<Void> drain() {
+        return Mono.defer(() -> {
+            if (spool != null && (!connected || !spool.isEmpty())) {
+                spool(events.drain(Integer.MAX_VALUE));
+                return connected || probeDue() ? replay(MAX_REPLAY_BATCHES) : Mono.empty();
+            }
+            if (!connected && !probeDue()) {
+                failedEvents.add(events.drain(Integer.MAX_VALUE).size());
+                return Mono.empty();
+            }
+            List<ProtoMonitoringEvent> batch = events.drain(batchSize);
+            if (batch.isEmpty()) {
+                return Mono.empty();
+            }
+            Mono<Void> send = sendBatch(batch)
+                    .onErrorResume(e -> {
+                        spool(batch);
+                        return Mono.empty();
+                    });
+            return batch.size() == batchSize ? send.then(drain()) : send;
+        });
+    }
+
+    /**
+     * Sends the spooled events in order, one batch at a time, until the spool is empty, a send
+     * fails or the per-tick limit is reached; what is left stays in the spool for the next tick.
+     */
+    private Mono<Void> replay(int batches) {
+        return Mono.defer(() -> {
+            List<byte[]> records = spool.peek(batchSize);
+            if (records.isEmpty() || batches == 0) {
+                return Mono.empty();
+            }
+            List<ProtoMonitoringEvent> batch = new ArrayList<>(records.size());
+            for (byte[] record : records) {
+                try {
+                    batch.add(ProtoMonitoringEvent.parseFrom(record));
+                } catch (InvalidProtocolBufferException e) {
+                    spoolDropped.increment();
+                }
+            }
+            return sendBatch(batch)
+                    .then(Mono.fromRunnable(() -> {
+                        spool.commit();
+                        replayed.add(batch.size());
+                    }))
+                    .then(replay(batches - 1));
+        }).onErrorResume(e -> Mono.empty());
+    }
+
+    private Mono<Void> sendBatch(List<ProtoMonitoringEvent> batch) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        return initRequesterReactive()
+                .switchIfEmpty(Mono.error(
+                        new IllegalStateException("Monitoring connection unavailable")))
+                .flatMap(req -> req.route("monitoring.logEvents")
+                        .data(ProtoMonitoringEventBatch.newBuilder()
+                                .addAllEvents(batch)
+                                .build())
+                        .send())
+                .timeout(sendTimeout)
+                .doOnSuccess(done -> {
+                    sentBatches.increment();
+                    sentEvents.add(batch.size());
+                    markUp();
+                })
+                .doOnError(this::markDown);
+    }
+
+    private boolean probeDue() {
+        return System.currentTimeMillis() >= nextProbeAt;
+    }
+
+    private void markDown(Throwable error) {
+        if (connected) {
+            log.warn("Monitoring unreachable, spooling events: {}", error.toString());
+            probeBackoff = probeInterval;
+        } else {
+            probeBackoff = probeBackoff.multipliedBy(2).compareTo(maxProbeInterval) < 0
+                    ? probeBackoff.multipliedBy(2)
+                    : maxProbeInterval;
+        }
+        connected = false;
+        nextProbeAt = System.currentTimeMillis() + probeBackoff.toMillis();
+    }
+
+    private void markUp() {
+        if (!connected) {
+            log.info("Monitoring reachable again, replaying spooled events");
+        }
+        connected = true;
+    }
+
+    private void spool(List<ProtoMonitoringEvent> batch) {
+        if (spool == null) {
+            failedEvents.add(batch.size());
+            return;
+        }
+        for (ProtoMonitoringEvent event : batch) {
+            try {
+                if (spool.append(event.toByteArray())) {
+                    spooled.increment();
+                } else {
+                    spoolDropped.increment();
+                }
+            } catch (IOException e) {
+                spoolDropped.increment();
+                log.warn("Could not spool monitoring event: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void reportStats() {
+        if (!statsEventService.isEmpty()) {
+            sendEvent(EventType.MONITORING_CLIENT_STATS, statsEventService, null, null, null,
+                    "Monitoring client counters", snapshot());
+        }
+        long lost = dropped.sum() + failedEvents.sum() + spoolDropped.sum();
+        boolean spooling = !connected || (spool != null && !spool.isEmpty());
+        if (lost > lastReportedLost || spooling) {
+            log.warn("Monitoring client: queued={} enqueued={} sentBatches={} sentEvents={} "
+                            + "dropped={} failed={} spooled={} replayed={} spoolDropped={} "
+                            + "spoolSegments={} connected={}",
+                    events.size(), enqueued.sum(), sentBatches.sum(), sentEvents.sum(),
+                    dropped.sum(), failedEvents.sum(), spooled.sum(), replayed.sum(),
+                    spoolDropped.sum(), spool != null ? spool.segmentCount() : 0, connected);
+        }
+        lastReportedLost = lost;
+    }
+
+    /**
+     * Current counters, also the metadata of MONITORING_CLIENT_STATS events.
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        snapshot.put("queued", String.valueOf(events.size()));
+        snapshot.put("capacity", String.valueOf(events.capacity()));
+        snapshot.put("enqueued", String.valueOf(enqueued.sum()));
+        snapshot.put("dropped", String.valueOf(dropped.sum()));
+        snapshot.put("sentBatches", String.valueOf(sentBatches.sum()));
+        snapshot.put("sentEvents", String.valueOf(sentEvents.sum()));
+        snapshot.put("failedEvents", String.valueOf(failedEvents.sum()));
+        snapshot.put("spooled", String.valueOf(spooled.sum()));
+        snapshot.put("replayed", String.valueOf(replayed.sum()));
+        snapshot.put("spoolDropped", String.valueOf(spoolDropped.sum()));
+        snapshot.put("spoolSegments", String.valueOf(spool != null ? spool.segmentCount() : 0));
+        snapshot.put("connected", String.valueOf(connected));
+        return snapshot;
+    }
+}
@@ -0,0 +1,101 @@
+package ecommerce.common.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRingBufferTests {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new EventRingBuffer<>(1000).capacity()).isEqualTo(1024);
+        assertThat(new EventRingBuffer<>(1024).capacity()).isEqualTo(1024);
+        assertThat(new EventRingBuffer<>(1).capacity()).isEqualTo(2);
+    }
+
+    @Test
+    void refusesOffersWhenFullAndAcceptsAgainAfterDrain() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.drain(2)).containsExactly(0, 1);
+        assertThat(ring.offer(5)).isTrue();
+        assertThat(ring.offer(6)).isTrue();
+        assertThat(ring.offer(7)).isFalse();
+        assertThat(ring.drain(10)).containsExactly(2, 3, 5, 6);
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void wrapsAroundManyTimesInOrder() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(8);
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ring.offer(i)).isTrue();
+            if (ring.size() == 7) {
+                drained.addAll(ring.drain(4));
+            }
+        }
+        drained.addAll(ring.drain(Integer.MAX_VALUE));
+
+        assertThat(drained).hasSize(1000).isSorted();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepPerProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        EventRingBuffer<long[]> ring = new EventRingBuffer<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    while (!ring.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+                finished.incrementAndGet();
+            });
+        }
+
+        start.countDown();
+        long[] next = new long[producers];
+        Set<String> seen = new HashSet<>();
+        int received = 0;
+        while (received < producers * perProducer) {
+            for (long[] item : ring.drain(256)) {
+                int producer = (int) item[0];
+                assertThat(item[1]).isEqualTo(next[producer]);
+                next[producer]++;
+                assertThat(seen.add(producer + ":" + item[1])).isTrue();
+                received++;
+            }
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(received).isEqualTo(producers * perProducer);
+        assertThat(ring.drain(1)).isEmpty();
+    }
+}
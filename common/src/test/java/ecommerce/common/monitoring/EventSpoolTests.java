@@ -0,0 +1,126 @@
+package ecommerce.common.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSpoolTests {
+
+    private static final long SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsBackInOrderAndConsumesOnlyOnCommit() throws IOException {
+        try (EventSpool spool = open()) {
+            append(spool, "a", "b", "c");
+
+            assertThat(read(spool.peek(2))).containsExactly("a", "b");
+            assertThat(read(spool.peek(2))).containsExactly("a", "b");
+            spool.commit();
+
+            assertThat(read(spool.peek(10))).containsExactly("c");
+            spool.commit();
+            assertThat(spool.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void restartResumesFromTheCommittedOffset() throws IOException {
+        try (EventSpool spool = open()) {
+            append(spool, "a", "b", "c");
+            spool.peek(1);
+            spool.commit();
+            spool.peek(1);
+        }
+
+        try (EventSpool spool = open()) {
+            assertThat(read(spool.peek(10))).containsExactly("b", "c");
+        }
+    }
+
+    @Test
+    void recordWhoseLengthWasNeverWrittenIsNotReadBack() throws IOException {
+        // Header, then two records of a length and one byte
+        long tail = 8 + 2 * (4 + 1);
+        try (EventSpool spool = open()) {
+            append(spool, "a", "b");
+        }
+        // A crash after copying the bytes but before the length leaves a zero length behind
+        try (RandomAccessFile file = new RandomAccessFile(segment().toFile(), "rw")) {
+            file.seek(tail + 4);
+            file.write("torn".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (EventSpool spool = open()) {
+            assertThat(read(spool.peek(10))).containsExactly("a", "b");
+            append(spool, "c");
+            assertThat(read(spool.peek(10))).containsExactly("a", "b", "c");
+        }
+    }
+
+    @Test
+    void lengthRunningPastTheSegmentEndsRecovery() throws IOException {
+        long tail = 8 + 4 + 1;
+        try (EventSpool spool = open()) {
+            append(spool, "a");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment().toFile(), "rw")) {
+            file.seek(tail);
+            file.write(new byte[] {0, 0, 0x10, 0});
+        }
+
+        try (EventSpool spool = open()) {
+            assertThat(read(spool.peek(10))).containsExactly("a");
+        }
+    }
+
+    @Test
+    void refusesAppendsAtTheSizeCapAndDeletesSegmentsOnceRead() throws IOException {
+        // Two records of 20 bytes fit in a 64 byte segment, and the cap allows two segments
+        try (EventSpool spool = EventSpool.open(directory, 64, 128)) {
+            byte[] record = new byte[20];
+            for (int i = 0; i < 4; i++) {
+                assertThat(spool.append(record)).isTrue();
+            }
+            assertThat(spool.append(record)).isFalse();
+            assertThat(spool.segmentCount()).isEqualTo(2);
+
+            assertThat(spool.peek(10)).hasSize(2);
+            spool.commit();
+
+            assertThat(spool.segmentCount()).isEqualTo(1);
+            assertThat(spool.append(record)).isTrue();
+        }
+    }
+
+    private EventSpool open() throws IOException {
+        return EventSpool.open(directory, SEGMENT_BYTES, 16 * SEGMENT_BYTES);
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static void append(EventSpool spool, String... records) throws IOException {
+        for (String record : records) {
+            assertThat(spool.append(record.getBytes(StandardCharsets.UTF_8))).isTrue();
+        }
+    }
+
+    private static List<String> read(List<byte[]> records) {
+        return records.stream().map(record -> new String(record, StandardCharsets.UTF_8)).toList();
+    }
+}
@@ -26,24 +26,53 @@ CREATE TABLE users (
 CREATE TABLE refresh_tokens (
     id            UUID         NOT NULL DEFAULT gen_random_uuid(),
     user_id       VARCHAR(36)  NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
-    refresh_token TEXT         NOT NULL,
+    -- Base64 HMAC-SHA256 of the refresh token, keyed with REFRESH_TOKEN_HMAC_KEY
+    token_digest  VARCHAR(64)  NOT NULL,
     user_agent    VARCHAR(255),
     client_city   VARCHAR(100),
     PRIMARY KEY (id),
+    CONSTRAINT uq_refresh_tokens_digest UNIQUE (token_digest),
     CONSTRAINT uq_refresh_tokens_device UNIQUE (user_id, user_agent, client_city)
 );
 
-INSERT INTO roles (role_name) VALUES ('GUEST_USER'), ('USER');
+-- auth_service keeps an in-memory permission matrix and reloads it on this notification
+CREATE FUNCTION notify_permissions_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('permissions_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER roles_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON roles
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_permissions_changed();
+
+CREATE TRIGGER permissions_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON permissions
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_permissions_changed();
+
+CREATE TRIGGER role_permissions_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON role_permissions
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_permissions_changed();
+
+INSERT INTO roles (role_name) VALUES ('GUEST_USER'), ('USER'), ('ADMIN');
 
 INSERT INTO permissions (id, service, destination) VALUES
-    (1, 'NONE',         'NONE'),
-    (2, 'AUTH_SERVICE', 'REGISTER'),
-    (3, 'AUTH_SERVICE', 'LOGIN'),
-    (4, 'USER_SERVICE', 'CREATE_USER_DETAILS');
+    (1, 'NONE',               'NONE'),
+    (2, 'AUTH_SERVICE',       'REGISTER'),
+    (3, 'AUTH_SERVICE',       'LOGIN'),
+    (4, 'USER_SERVICE',       'CREATE_USER_DETAILS'),
+    (5, 'MONITORING_SERVICE', 'QUERY_EVENTS'),
+    (6, 'AUTH_SERVICE',       'RELOAD_PERMISSIONS'),
+    (7, 'AUTH_SERVICE',       'READ_METRICS');
 
 INSERT INTO role_permissions (role_name, permission_id) VALUES
     ('GUEST_USER', 1),
     ('GUEST_USER', 2),
     ('GUEST_USER', 3),
     ('USER',       1),
-    ('USER',       4);
+    ('USER',       4),
+    ('ADMIN',      1),
+    ('ADMIN',      5),
+    ('ADMIN',      6),
+    ('ADMIN',      7);
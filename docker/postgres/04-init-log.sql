@@ -2,8 +2,9 @@ CREATE DATABASE log;
 GRANT ALL PRIVILEGES ON DATABASE log TO ecommerce;
 \c log;
 
+-- One partition per day; monitoring_service creates upcoming days and drops expired ones
 CREATE TABLE monitoring_events (
-    id            BIGSERIAL    PRIMARY KEY,
+    id            BIGSERIAL    NOT NULL,
     event_type    VARCHAR(100) NOT NULL,
     service_name  VARCHAR(100) NOT NULL,
     user_id       VARCHAR(36),
@@ -11,10 +12,29 @@ CREATE TABLE monitoring_events (
     client_city   VARCHAR(100),
     details       TEXT,
     metadata      JSONB,
-    timestamp     TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
-);
+    timestamp     TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Leads with timestamp so newest-first keyset pages are read straight off the index
+    PRIMARY KEY (timestamp, id)
+) PARTITION BY RANGE (timestamp);
 
-CREATE INDEX idx_monitoring_events_event_type ON monitoring_events(event_type);
-CREATE INDEX idx_monitoring_events_service_name ON monitoring_events(service_name);
-CREATE INDEX idx_monitoring_events_user_id ON monitoring_events(user_id);
-CREATE INDEX idx_monitoring_events_timestamp ON monitoring_events(timestamp DESC);
+-- Catches timestamps outside the created days, e.g. from a sender with a skewed clock;
+-- monitoring_service moves its rows into a day's partition when it creates one
+CREATE TABLE monitoring_events_default PARTITION OF monitoring_events DEFAULT;
+
+-- Filtered queries page by (timestamp, id) within the filter
+CREATE INDEX idx_monitoring_events_user_id ON monitoring_events(user_id, timestamp, id);
+CREATE INDEX idx_monitoring_events_event_type ON monitoring_events(event_type, timestamp, id);
+CREATE INDEX idx_monitoring_events_service_name ON monitoring_events(service_name, timestamp, id);
+
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR day IN SELECT generate_series(CURRENT_DATE, CURRENT_DATE + 7, INTERVAL '1 day')::DATE LOOP
+        EXECUTE format(
+            'CREATE TABLE monitoring_events_p%s PARTITION OF monitoring_events '
+                || 'FOR VALUES FROM (%L) TO (%L)',
+            to_char(day, 'YYYYMMDD'), day, day + 1);
+    END LOOP;
+END
+$$;
@@ -0,0 +1,37 @@
+-- Brings an auth database created before refresh tokens were keyed by digest up to
+-- 01-init-auth.sql. The init scripts only run on an empty data directory, so deployed databases
+-- need this once:
+--   docker compose exec -T postgres psql -U "$DB_USERNAME" -d auth < docker/postgres/migrations/001-refresh-token-digest.sql
+-- Safe to run again. Stored bcrypt hashes cannot be turned into digests, so existing refresh
+-- tokens are deleted and their users log in again.
+
+BEGIN;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema()
+                 AND table_name = 'refresh_tokens'
+                 AND column_name = 'refresh_token') THEN
+        DELETE FROM refresh_tokens;
+        ALTER TABLE refresh_tokens DROP COLUMN refresh_token;
+    END IF;
+END;
+$$;
+
+-- Base64 HMAC-SHA256 of the refresh token, keyed with REFRESH_TOKEN_HMAC_KEY
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token_digest VARCHAR(64) NOT NULL;
+
+-- The unique constraint is backed by the index every lookup, rotation and revocation uses
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conname = 'uq_refresh_tokens_digest'
+                     AND conrelid = 'refresh_tokens'::regclass) THEN
+        ALTER TABLE refresh_tokens
+            ADD CONSTRAINT uq_refresh_tokens_digest UNIQUE (token_digest);
+    END IF;
+END;
+$$;
+
+COMMIT;
@@ -0,0 +1,23 @@
+-- Adds the ADMIN role and its permissions from 01-init-auth.sql to an auth database created
+-- before them:
+--   docker compose exec -T postgres psql -U "$DB_USERNAME" -d auth < docker/postgres/migrations/002-admin-permissions.sql
+-- Safe to run again. The permission triggers make a running auth_service reload its matrix.
+
+BEGIN;
+
+INSERT INTO roles (role_name) VALUES ('ADMIN') ON CONFLICT DO NOTHING;
+
+INSERT INTO permissions (id, service, destination) VALUES
+    (5, 'MONITORING_SERVICE', 'QUERY_EVENTS'),
+    (6, 'AUTH_SERVICE',       'RELOAD_PERMISSIONS'),
+    (7, 'AUTH_SERVICE',       'READ_METRICS')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO role_permissions (role_name, permission_id) VALUES
+    ('ADMIN', 1),
+    ('ADMIN', 5),
+    ('ADMIN', 6),
+    ('ADMIN', 7)
+ON CONFLICT DO NOTHING;
+
+COMMIT;
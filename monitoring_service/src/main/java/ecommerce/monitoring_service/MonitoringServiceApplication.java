@@ -1,11 +1,13 @@
 package ecommerce.monitoring_service;
 
+import ecommerce.common.config.BlockingCallDetector;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class MonitoringServiceApplication {
     public static void main(String[] args) {
+        BlockingCallDetector.installIfEnabled();
         SpringApplication.run(MonitoringServiceApplication.class, args);
     }
 }
@@ -1,11 +1,18 @@
 package ecommerce.monitoring_service.controller;
 
+import ecommerce.monitoring_service.ProtoEventQuery;
 import ecommerce.monitoring_service.ProtoMonitoringEvent;
+import ecommerce.monitoring_service.ProtoMonitoringEventBatch;
+import ecommerce.monitoring_service.service.EventQueryService;
 import ecommerce.monitoring_service.service.MonitoringService;
+import ecommerce.monitoring_service.service.TokenService;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.exceptions.RejectedException;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Controller
@@ -14,8 +21,35 @@ public class MonitoringController {
 
     private final MonitoringService monitoringService;
 
+    private final EventQueryService eventQueryService;
+
+    private final TokenService tokenService;
+
     @MessageMapping("monitoring.logEvent")
     public Mono<Void> logEvent(ProtoMonitoringEvent event) {
         return monitoringService.handleEvent(event);
     }
+
+    @MessageMapping("monitoring.logEvents")
+    public Mono<Void> logEvents(ProtoMonitoringEventBatch batch) {
+        return Flux.fromIterable(batch.getEventsList())
+                .concatMap(monitoringService::handleEvent)
+                .then();
+    }
+
+    /**
+     * Request-stream of stored events; fails with a REJECTED error frame unless the service
+     * token grants QUERY_EVENTS, and with an INVALID one for a malformed query, so the gateway
+     * can tell both apart from failures of its own.
+     */
+    @MessageMapping("monitoring.queryEvents")
+    public Flux<ProtoMonitoringEvent> queryEvents(ProtoEventQuery query) {
+        return tokenService.validateTokenAndGetUserId(query.getMetadataMap(),
+                        TokenService.Destination.QUERY_EVENTS)
+                .switchIfEmpty(Mono.error(new SecurityException("No required permissions")))
+                .flatMapMany(userId -> eventQueryService.query(query))
+                .onErrorMap(SecurityException.class, e -> new RejectedException(e.getMessage()))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new InvalidException(e.getMessage()));
+    }
 }
@@ -0,0 +1,190 @@
+package ecommerce.monitoring_service.service;
+
+import ecommerce.monitoring_service.ProtoEventQuery;
+import ecommerce.monitoring_service.ProtoMonitoringEvent;
+import io.r2dbc.postgresql.codec.Json;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads monitoring_events newest first with keyset pagination on (timestamp, id). Each page is
+ * fetched with a row comparison against the last row of the previous one, which the primary key
+ * and the filter indexes answer by seeking, so a page costs the same however deep into the
+ * result it is. Pages of page-size rows are fetched only as the caller consumes the stream, and
+ * a time range in the query limits the scan to the partitions it covers.
+ */
+@Service
+@Slf4j
+public class EventQueryService {
+
+    private static final String SELECT = "SELECT id, event_type, service_name, user_id, "
+            + "user_agent, client_city, details, metadata, timestamp FROM monitoring_events";
+
+    private static final TypeReference<Map<String, String>> METADATA_TYPE =
+            new TypeReference<>() {
+            };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final DatabaseClient databaseClient;
+    private final int pageSize;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public EventQueryService(DatabaseClient databaseClient,
+            @Value("${event-query.page-size:500}") int pageSize,
+            @Value("${event-query.default-limit:1000}") int defaultLimit,
+            @Value("${event-query.max-limit:100000}") int maxLimit) {
+        this.databaseClient = databaseClient;
+        this.pageSize = pageSize;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public Flux<ProtoMonitoringEvent> query(ProtoEventQuery query) {
+        Filter filter;
+        LocalDateTime afterTimestamp;
+        try {
+            filter = new Filter(
+                    blankToNull(query.getUserId()),
+                    blankToNull(query.getEventType()),
+                    blankToNull(query.getServiceName()),
+                    parseTimestamp(query.getFrom()),
+                    parseTimestamp(query.getTo()));
+            afterTimestamp = parseTimestamp(query.getAfterTimestamp());
+        } catch (DateTimeParseException e) {
+            return Flux.error(new IllegalArgumentException(
+                    "Timestamps must be ISO-8601 instants: " + e.getParsedString()));
+        }
+        int limit = query.getLimit() > 0 ? Math.min(query.getLimit(), maxLimit) : defaultLimit;
+        return page(filter, afterTimestamp, query.getAfterId(), limit)
+                .map(this::toProto);
+    }
+
+    private Flux<Row> page(Filter filter, LocalDateTime afterTimestamp, long afterId,
+            int remaining) {
+        int size = Math.min(pageSize, remaining);
+        return fetch(filter, afterTimestamp, afterId, size)
+                .collectList()
+                .flatMapMany(rows -> {
+                    Flux<Row> current = Flux.fromIterable(rows);
+                    if (rows.size() < size || remaining == size) {
+                        return current;
+                    }
+                    Row last = rows.getLast();
+                    return current.concatWith(Flux.defer(() -> page(filter, last.timestamp(),
+                            last.id(), remaining - size)));
+                });
+    }
+
+    private Flux<Row> fetch(Filter filter, LocalDateTime afterTimestamp, long afterId,
+            int size) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> binds = new ArrayList<>();
+        addCondition(conditions, binds, "user_id = $%d", filter.userId());
+        addCondition(conditions, binds, "event_type = $%d", filter.eventType());
+        addCondition(conditions, binds, "service_name = $%d", filter.serviceName());
+        addCondition(conditions, binds, "timestamp >= $%d", filter.from());
+        addCondition(conditions, binds, "timestamp < $%d", filter.to());
+        if (afterTimestamp != null) {
+            conditions.add("(timestamp, id) < ($%d, $%d)".formatted(binds.size() + 1,
+                    binds.size() + 2));
+            binds.add(afterTimestamp);
+            binds.add(afterId);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ").append(size);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < binds.size(); i++) {
+            spec = spec.bind(i, binds.get(i));
+        }
+        return spec.map(EventQueryService::toRow).all();
+    }
+
+    private static void addCondition(List<String> conditions, List<Object> binds,
+            String condition, Object value) {
+        if (value != null) {
+            binds.add(value);
+            conditions.add(condition.formatted(binds.size()));
+        }
+    }
+
+    private static Row toRow(Readable row) {
+        Json metadata = row.get("metadata", Json.class);
+        return new Row(
+                row.get("id", Long.class),
+                row.get("event_type", String.class),
+                row.get("service_name", String.class),
+                row.get("user_id", String.class),
+                row.get("user_agent", String.class),
+                row.get("client_city", String.class),
+                row.get("details", String.class),
+                metadata != null ? metadata.asString() : null,
+                row.get("timestamp", LocalDateTime.class));
+    }
+
+    private ProtoMonitoringEvent toProto(Row row) {
+        ProtoMonitoringEvent.Builder builder = ProtoMonitoringEvent.newBuilder()
+                .setId(row.id())
+                .setEventType(row.eventType())
+                .setServiceName(row.serviceName())
+                .setUserId(nullToBlank(row.userId()))
+                .setUserAgent(nullToBlank(row.userAgent()))
+                .setClientCity(nullToBlank(row.clientCity()))
+                .setDetails(nullToBlank(row.details()))
+                .setTimestamp(row.timestamp().atZone(ZoneId.systemDefault()).toInstant()
+                        .toString());
+        if (row.metadata() != null) {
+            try {
+                builder.putAllMetadata(objectMapper.readValue(row.metadata(), METADATA_TYPE));
+            } catch (JacksonException e) {
+                log.warn("Unreadable metadata on monitoring event {}", row.id());
+            }
+        }
+        return builder.build();
+    }
+
+    // Stored timestamps are local times, as MonitoringService converts them on the way in
+    private static LocalDateTime parseTimestamp(String value) {
+        return value == null || value.isBlank()
+                ? null
+                : LocalDateTime.ofInstant(Instant.parse(value), ZoneId.systemDefault());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static String nullToBlank(String value) {
+        return value != null ? value : "";
+    }
+
+    private record Filter(String userId, String eventType, String serviceName,
+            LocalDateTime from, LocalDateTime to) {
+    }
+
+    private record Row(long id, String eventType, String serviceName, String userId,
+            String userAgent, String clientCity, String details, String metadata,
+            LocalDateTime timestamp) {
+    }
+}
@@ -0,0 +1,249 @@
+package ecommerce.monitoring_service.service;
+
+import ecommerce.monitoring_service.domain.MonitoringEvent;
+import io.r2dbc.postgresql.codec.Json;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for monitoring_events. Events are queued and written with one multi-row
+ * INSERT per batch, flushed when batch-size events are waiting or every flush-interval,
+ * whichever comes first. At most one flush runs at a time.
+ * <p>
+ * A failed INSERT is retried with exponential backoff from retry-backoff, up to retries times.
+ * While a batch is being retried no other flush runs, so an unreachable database fills the
+ * buffer and holds back submissions instead of discarding batch after batch; a batch counts as
+ * failed only once its retries are exhausted.
+ * <p>
+ * The buffer holds at most capacity events. A submission that finds it full waits up to
+ * max-wait for a flush to make room, which holds back the inbound stream, and then applies the
+ * overflow policy: DROP_NEWEST discards the incoming event, DROP_OLDEST discards the oldest
+ * queued one. Dropped events are counted and logged with the periodic statistics.
+ */
+@Component
+@Slf4j
+public class EventWriteBuffer {
+
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST
+    }
+
+    private static final String INSERT_PREFIX = "INSERT INTO monitoring_events "
+            + "(event_type, service_name, user_id, user_agent, client_city, details, metadata, "
+            + "timestamp) VALUES ";
+    private static final int COLUMNS = 8;
+    private static final Duration OFFER_RETRY_DELAY = Duration.ofMillis(5);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(10);
+
+    private final DatabaseClient databaseClient;
+    private final BlockingQueue<MonitoringEvent> queue;
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanosTotal = new LongAdder();
+    private final LongAccumulator flushNanosMax = new LongAccumulator(Math::max, 0);
+
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration statsInterval;
+    private final OverflowPolicy overflowPolicy;
+    private final long maxOfferRetries;
+    private final int retries;
+    private final Duration retryBackoff;
+
+    private Disposable ticker;
+    private long lastWritten;
+    private long lastFlushes;
+    private long lastFlushNanos;
+
+    public EventWriteBuffer(DatabaseClient databaseClient,
+            @Value("${write-behind.capacity:50000}") int capacity,
+            @Value("${write-behind.batch-size:500}") int batchSize,
+            @Value("${write-behind.flush-interval:200ms}") Duration flushInterval,
+            @Value("${write-behind.max-wait:50ms}") Duration maxWait,
+            @Value("${write-behind.overflow:DROP_NEWEST}") OverflowPolicy overflowPolicy,
+            @Value("${write-behind.stats-interval:60s}") Duration statsInterval,
+            @Value("${write-behind.retries:5}") int retries,
+            @Value("${write-behind.retry-backoff:200ms}") Duration retryBackoff) {
+        if ((long) batchSize * COLUMNS > 65535) {
+            throw new IllegalArgumentException("write-behind.batch-size exceeds the bind limit");
+        }
+        this.databaseClient = databaseClient;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.statsInterval = statsInterval;
+        this.overflowPolicy = overflowPolicy;
+        this.maxOfferRetries = Math.max(0, maxWait.toMillis() / OFFER_RETRY_DELAY.toMillis());
+        this.retries = retries;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Flux.merge(
+                        Flux.interval(flushInterval).map(tick -> Boolean.TRUE),
+                        Flux.interval(statsInterval).map(tick -> Boolean.FALSE))
+                .subscribe(isFlushTick -> {
+                    if (isFlushTick) {
+                        flush();
+                    } else {
+                        reportStats();
+                    }
+                });
+        log.info("Write-behind buffer: capacity={} batchSize={} flushInterval={} overflow={}",
+                queue.remainingCapacity(), batchSize, flushInterval, overflowPolicy);
+    }
+
+    /**
+     * Queues the event; completes once it is queued or, when the buffer stayed full for
+     * max-wait, once the overflow policy has been applied.
+     */
+    public Mono<Void> submit(MonitoringEvent event) {
+        return Mono.fromSupplier(() -> queue.offer(event))
+                .filter(Boolean::booleanValue)
+                .repeatWhenEmpty(attempts -> attempts.take(maxOfferRetries)
+                        .delayElements(OFFER_RETRY_DELAY))
+                .switchIfEmpty(Mono.fromSupplier(() -> overflow(event)))
+                .doOnNext(queued -> {
+                    if (queue.size() >= batchSize) {
+                        flush();
+                    }
+                })
+                .then();
+    }
+
+    private boolean overflow(MonitoringEvent event) {
+        dropped.increment();
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            queue.poll();
+            return queue.offer(event);
+        }
+        return false;
+    }
+
+    private void flush() {
+        if (queue.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        List<MonitoringEvent> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        long start = System.nanoTime();
+        insert(batch)
+                .retryWhen(Retry.backoff(retries, retryBackoff)
+                        .maxBackoff(MAX_RETRY_BACKOFF)
+                        .doBeforeRetry(retry -> log.warn(
+                                "Retrying write of {} monitoring events (attempt {}): {}",
+                                batch.size(), retry.totalRetries() + 1,
+                                retry.failure().getMessage())))
+                .doOnSuccess(rows -> {
+                    long elapsed = System.nanoTime() - start;
+                    written.add(batch.size());
+                    flushes.increment();
+                    flushNanosTotal.add(elapsed);
+                    flushNanosMax.accumulate(elapsed);
+                })
+                .doOnError(e -> {
+                    failed.add(batch.size());
+                    Throwable cause = Exceptions.isRetryExhausted(e) ? e.getCause() : e;
+                    log.error("Dropped {} monitoring events after {} retries: {}", batch.size(),
+                            retries, cause.getMessage());
+                })
+                .onErrorComplete()
+                .doFinally(signal -> {
+                    flushing.set(false);
+                    if (queue.size() >= batchSize) {
+                        flush();
+                    }
+                })
+                .subscribe();
+    }
+
+    private Mono<Long> insert(List<MonitoringEvent> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int row = 0; row < batch.size(); row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 1; column <= COLUMNS; column++) {
+                sql.append(column == 1 ? "$" : ", $").append(row * COLUMNS + column);
+            }
+            sql.append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        int index = 0;
+        for (MonitoringEvent event : batch) {
+            spec = bind(spec, index++, event.getEventType(), String.class);
+            spec = bind(spec, index++, event.getServiceName(), String.class);
+            spec = bind(spec, index++, event.getUserId(), String.class);
+            spec = bind(spec, index++, event.getUserAgent(), String.class);
+            spec = bind(spec, index++, event.getClientCity(), String.class);
+            spec = bind(spec, index++, event.getDetails(), String.class);
+            spec = bind(spec, index++, event.getMetadata(), Json.class);
+            spec = bind(spec, index++, event.getTimestamp(), LocalDateTime.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+            int index, Object value, Class<?> type) {
+        return value != null ? spec.bind(index, value) : spec.bindNull(index, type);
+    }
+
+    private void reportStats() {
+        long writtenCount = written.sum();
+        long flushCount = flushes.sum();
+        long flushNanos = flushNanosTotal.sum();
+        long newFlushes = flushCount - lastFlushes;
+        log.info("Write-behind buffer: queued={} rowsPerSecond={} flushMillisAvg={} "
+                        + "flushMillisMax={} failed={} dropped={}",
+                queue.size(),
+                "%.1f".formatted((writtenCount - lastWritten) * 1000.0 / statsInterval.toMillis()),
+                newFlushes == 0 ? "n/a"
+                        : "%.1f".formatted((flushNanos - lastFlushNanos) / 1e6 / newFlushes),
+                "%.1f".formatted(flushNanosMax.getThenReset() / 1e6),
+                failed.sum(),
+                dropped.sum());
+        lastWritten = writtenCount;
+        lastFlushes = flushCount;
+        lastFlushNanos = flushNanos;
+    }
+
+    /**
+     * Stops the timers and writes what is still queued before the connection pool closes.
+     */
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        List<MonitoringEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        Flux.fromIterable(remaining)
+                .buffer(batchSize)
+                .concatMap(this::insert)
+                .then()
+                .block(Duration.ofSeconds(10));
+    }
+}
@@ -4,7 +4,6 @@ package ecommerce.monitoring_service.service;
 
 import ecommerce.monitoring_service.ProtoMonitoringEvent;
 import ecommerce.monitoring_service.domain.MonitoringEvent;
-import ecommerce.monitoring_service.repository.MonitoringEventRepository;
 import io.r2dbc.postgresql.codec.Json;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +23,7 @@ public class MonitoringService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final MonitoringEventRepository eventRepository;
+    private final EventWriteBuffer eventWriteBuffer;
 
     public Mono<Void> handleEvent(ProtoMonitoringEvent event) {
         return Mono.fromCallable(() -> {
@@ -45,17 +44,10 @@ public class MonitoringService {
                             convertToLocalDateTime(event.getTimestamp()),
                             metadata);
                 })
-                .flatMap(eventRepository::save)
-                .doOnSuccess(saved -> log.warn(
-                        "[SUSPICIOUS EVENT] id={} type={} service={} userId={} details={}",
-                        saved.getId(),
-                        saved.getEventType(),
-                        saved.getServiceName(),
-                        saved.getUserId(),
-                        saved.getDetails()))
+                .flatMap(eventWriteBuffer::submit)
                 .doOnError(
-                        e -> log.error("Failed to persist monitoring event: {}", e.getMessage(), e))
-                .then();
+                        e -> log.error("Failed to queue monitoring event: {}", e.getMessage(), e))
+                .onErrorComplete();
     }
 
     private LocalDateTime convertToLocalDateTime(String timestampStr) {
@@ -0,0 +1,164 @@
+package ecommerce.monitoring_service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keeps the daily partitions of monitoring_events: partitions for today and the next
+ * precreate-days days are created ahead of time, and partitions older than retention-days are
+ * dropped whole, which frees their space at once instead of leaving dead rows for vacuum.
+ * Runs at startup and every maintenance-interval.
+ * <p>
+ * Rows for a day without a partition land in the default partition, and Postgres refuses to
+ * create a partition whose range the default partition already holds rows for. Such a day's
+ * partition is therefore built beside the table, the rows are moved into it and it is attached,
+ * all in one statement. Rows in the default partition older than retention-days are deleted.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenance {
+
+    private static final String PARTITION_PREFIX = "monitoring_events_p";
+    private static final String DEFAULT_PARTITION = "monitoring_events_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String LIST_PARTITIONS = "SELECT child.relname AS name "
+            + "FROM pg_inherits JOIN pg_class parent ON parent.oid = pg_inherits.inhparent "
+            + "JOIN pg_class child ON child.oid = pg_inherits.inhrelid "
+            + "WHERE parent.relname = 'monitoring_events'";
+
+    private final DatabaseClient databaseClient;
+    private final int precreateDays;
+    private final int retentionDays;
+    private final Duration maintenanceInterval;
+
+    private Disposable ticker;
+
+    public PartitionMaintenance(DatabaseClient databaseClient,
+            @Value("${partitions.precreate-days:7}") int precreateDays,
+            @Value("${partitions.retention-days:30}") int retentionDays,
+            @Value("${partitions.maintenance-interval:1h}") Duration maintenanceInterval) {
+        this.databaseClient = databaseClient;
+        this.precreateDays = precreateDays;
+        this.retentionDays = retentionDays;
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Flux.interval(Duration.ZERO, maintenanceInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> maintain(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+    }
+
+    private Mono<Void> maintain() {
+        LocalDate today = LocalDate.now();
+        return Flux.range(0, precreateDays + 1)
+                .map(today::plusDays)
+                .concatMap(this::createPartition)
+                .thenMany(dropPartitionsBefore(today.minusDays(retentionDays)))
+                .then(deleteDefaultRowsBefore(today.minusDays(retentionDays)));
+    }
+
+    private Mono<Void> createPartition(LocalDate day) {
+        String partition = partitionName(day);
+        String from = "'" + day + "'";
+        String to = "'" + day.plusDays(1) + "'";
+        // Locks the parent before the default partition, in the order inserts take them, so
+        // no row for the day can reach the default partition between the move and the attach
+        String sql = "DO $$ BEGIN "
+                + "IF to_regclass('" + partition + "') IS NOT NULL THEN RETURN; END IF; "
+                + "IF NOT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= " + from + " AND timestamp < " + to + ") THEN "
+                + "CREATE TABLE " + partition + " PARTITION OF monitoring_events "
+                + "FOR VALUES FROM (" + from + ") TO (" + to + "); "
+                + "RETURN; END IF; "
+                + "LOCK TABLE monitoring_events IN SHARE UPDATE EXCLUSIVE MODE; "
+                + "LOCK TABLE " + DEFAULT_PARTITION + " IN ACCESS EXCLUSIVE MODE; "
+                + "CREATE TABLE " + partition + " (LIKE monitoring_events INCLUDING DEFAULTS); "
+                + "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= " + from + " AND timestamp < " + to + " RETURNING *) "
+                + "INSERT INTO " + partition + " SELECT * FROM moved; "
+                + "ALTER TABLE monitoring_events ATTACH PARTITION " + partition
+                + " FOR VALUES FROM (" + from + ") TO (" + to + "); "
+                + "END $$";
+        return databaseClient.sql(sql)
+                .then()
+                .doOnError(e -> log.error("Could not create partition for {}: {}", day,
+                        e.getMessage()))
+                .onErrorComplete();
+    }
+
+    private Flux<Void> dropPartitionsBefore(LocalDate oldestKept) {
+        return databaseClient.sql(LIST_PARTITIONS)
+                .map(row -> row.get("name", String.class))
+                .all()
+                .filter(name -> {
+                    LocalDate day = partitionDay(name);
+                    return day != null && day.isBefore(oldestKept);
+                })
+                .concatMap(name -> databaseClient.sql("DROP TABLE IF EXISTS " + name)
+                        .then()
+                        .doOnSuccess(done -> log.info("Dropped expired partition {}", name))
+                        .doOnError(e -> log.error("Could not drop partition {}: {}", name,
+                                e.getMessage()))
+                        .onErrorComplete())
+                .onErrorResume(e -> {
+                    log.error("Could not list monitoring_events partitions: {}", e.getMessage());
+                    return Flux.empty();
+                });
+    }
+
+    private Mono<Void> deleteDefaultRowsBefore(LocalDate oldestKept) {
+        return databaseClient.sql("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < $1")
+                .bind(0, oldestKept.atStartOfDay())
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> {
+                    if (deleted > 0) {
+                        log.info("Deleted {} expired rows from {}", deleted, DEFAULT_PARTITION);
+                    }
+                })
+                .doOnError(e -> log.error("Could not delete expired rows from {}: {}",
+                        DEFAULT_PARTITION, e.getMessage()))
+                .onErrorComplete()
+                .then();
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    // Null for partitions not named after a day, such as the default partition
+    private static LocalDate partitionDay(String name) {
+        if (!name.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ecommerce.monitoring_service.service;
+
+import ecommerce.monitoring_service.util.JwtKeys;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the service token auth_service issued for a request against the destination it is
+ * used for, as user_service does for its own routes.
+ */
+@Service
+@Slf4j
+public class TokenService {
+
+    private static final String MONITORING_SERVICE = "MONITORING_SERVICE";
+
+    public enum Destination {
+        QUERY_EVENTS
+    }
+
+    private final JwtParser jwtParser;
+
+    public TokenService(
+            @Value("${jwt.service.public.key}") String servicePublicKeyStr,
+            @Value("${jwt.service.additional-public-keys:}") String serviceAdditionalKeys)
+            throws Exception {
+        this.jwtParser = Jwts.parser()
+                .keyLocator(JwtKeys.locator(
+                        JwtKeys.keyRing(servicePublicKeyStr, serviceAdditionalKeys),
+                        JwtKeys.parsePublicKey(servicePublicKeyStr)))
+                .clockSkewSeconds(60)
+                .build();
+    }
+
+    /**
+     * Emits the user id when the service token grants destination, otherwise completes empty.
+     */
+    public Mono<String> validateTokenAndGetUserId(Map<String, String> metadata,
+            Destination destination) {
+        String token = metadata.get("serviceToken");
+        if (token == null || token.isEmpty()) {
+            log.warn("Missing service token for destination: {}", destination);
+            return Mono.empty();
+        }
+
+        return Mono.fromCallable(() -> jwtParser.parseSignedClaims(token).getPayload())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(claims -> {
+                    List<String> services = claims.get("services", List.class);
+                    List<String> destinations = claims.get("destinations", List.class);
+
+                    if (services != null && services.contains(MONITORING_SERVICE)
+                            && destinations != null
+                            && destinations.contains(destination.name())) {
+                        return Mono.just(claims.getSubject());
+                    }
+                    log.warn("Valid token with incorrect permissions for destination: {}",
+                            destination);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Invalid service token for destination: {}", destination);
+                    return Mono.empty();
+                });
+    }
+}
@@ -6,5 +6,6 @@ public enum EventType {
     INVALID_SESSION_TOKEN_COMBINATION,
     INVALID_JWT_FORMAT,
     SERVICE_TOKEN_MISMATCH,
-    SUSPICIOUS_ACTIVITY
+    SUSPICIOUS_ACTIVITY,
+    MONITORING_CLIENT_STATS
 }
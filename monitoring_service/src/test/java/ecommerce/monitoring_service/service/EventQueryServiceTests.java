@@ -0,0 +1,206 @@
+package ecommerce.monitoring_service.service;
+
+import ecommerce.monitoring_service.ProtoEventQuery;
+import ecommerce.monitoring_service.ProtoMonitoringEvent;
+import io.r2dbc.spi.Readable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventQueryServiceTests {
+
+    private static final Pattern LIMIT = Pattern.compile("LIMIT (\\d+)$");
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 2, 10, 0);
+
+    private final List<StoredEvent> table = new ArrayList<>();
+    private final List<Execution> executions = new ArrayList<>();
+
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        // Ten events over five seconds, two per second, so pages split rows sharing a timestamp
+        for (long id = 1; id <= 10; id++) {
+            table.add(new StoredEvent(id, BASE.plusSeconds((id - 1) / 2)));
+        }
+        databaseClient = mock(DatabaseClient.class);
+        when(databaseClient.sql(anyString()))
+                .thenAnswer(invocation -> spec(invocation.getArgument(0)));
+    }
+
+    @Test
+    void pagesNewestFirstWithoutSkippingOrRepeatingRows() {
+        List<Long> ids = ids(service(3).query(ProtoEventQuery.newBuilder().setLimit(100).build()));
+
+        assertThat(ids).containsExactly(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L);
+        assertThat(executions).hasSize(4);
+    }
+
+    @Test
+    void laterPagesSeekPastTheLastRowOfThePreviousPage() {
+        ids(service(3).query(ProtoEventQuery.newBuilder().setLimit(100).build()));
+
+        assertThat(executions.getFirst().sql()).doesNotContain("(timestamp, id) <");
+        Execution second = executions.get(1);
+        assertThat(second.sql()).contains("WHERE (timestamp, id) < ($1, $2)");
+        assertThat(second.binds()).containsExactly(BASE.plusSeconds(3), 8L);
+    }
+
+    @Test
+    void lastPageIsCutToTheLimit() {
+        List<Long> ids = ids(service(3).query(ProtoEventQuery.newBuilder().setLimit(7).build()));
+
+        assertThat(ids).containsExactly(10L, 9L, 8L, 7L, 6L, 5L, 4L);
+        assertThat(executions).extracting(Execution::limit).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void nextPageIsOnlyFetchedOnceTheCurrentOneIsConsumed() {
+        List<ProtoMonitoringEvent> events = service(3)
+                .query(ProtoEventQuery.newBuilder().setLimit(100).build())
+                .take(2)
+                .collectList()
+                .block();
+
+        assertThat(events).hasSize(2);
+        assertThat(executions).hasSize(1);
+    }
+
+    @Test
+    void continuesAfterTheGivenKey() {
+        ProtoEventQuery query = ProtoEventQuery.newBuilder()
+                .setAfterTimestamp(instant(BASE.plusSeconds(2)))
+                .setAfterId(6)
+                .setLimit(100)
+                .build();
+
+        assertThat(ids(service(3).query(query))).containsExactly(5L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void filtersAreBoundInOrderAheadOfTheKey() {
+        ProtoEventQuery query = ProtoEventQuery.newBuilder()
+                .setServiceName("AUTH_SERVICE")
+                .setFrom(instant(BASE))
+                .setLimit(1)
+                .build();
+
+        ids(service(3).query(query));
+
+        assertThat(executions.getFirst().sql())
+                .contains("WHERE service_name = $1 AND timestamp >= $2 ORDER BY");
+        assertThat(executions.getFirst().binds()).containsExactly("AUTH_SERVICE", BASE);
+    }
+
+    @Test
+    void malformedTimestampIsRejected() {
+        ProtoEventQuery query = ProtoEventQuery.newBuilder().setFrom("yesterday").build();
+
+        assertThatThrownBy(() -> service(3).query(query).blockLast())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(executions).isEmpty();
+    }
+
+    private EventQueryService service(int pageSize) {
+        return new EventQueryService(databaseClient, pageSize, 1000, 100_000);
+    }
+
+    private static List<Long> ids(Flux<ProtoMonitoringEvent> events) {
+        return events.map(ProtoMonitoringEvent::getId).collectList().block();
+    }
+
+    private static String instant(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toString();
+    }
+
+    /**
+     * Answers the keyset condition and LIMIT the way Postgres would; other conditions are only
+     * recorded.
+     */
+    @SuppressWarnings("unchecked")
+    private DatabaseClient.GenericExecuteSpec spec(String sql) {
+        List<Object> binds = new ArrayList<>();
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class);
+        when(spec.bind(anyInt(), any())).thenAnswer(invocation -> {
+            binds.add(invocation.getArgument(1));
+            return spec;
+        });
+        when(spec.map(any(Function.class))).thenAnswer(invocation -> {
+            Function<Readable, Object> mapper = invocation.getArgument(0);
+            RowsFetchSpec<Object> fetchSpec = mock(RowsFetchSpec.class);
+            when(fetchSpec.all()).thenAnswer(all -> Flux.defer(() -> {
+                Matcher limit = LIMIT.matcher(sql);
+                limit.find();
+                Execution execution = new Execution(sql, List.copyOf(binds),
+                        Integer.parseInt(limit.group(1)));
+                executions.add(execution);
+                return Flux.fromIterable(execute(execution)).map(mapper);
+            }));
+            return fetchSpec;
+        });
+        return spec;
+    }
+
+    private List<Readable> execute(Execution execution) {
+        Comparator<StoredEvent> newestFirst = Comparator.comparing(StoredEvent::timestamp)
+                .thenComparingLong(StoredEvent::id)
+                .reversed();
+        boolean keyset = execution.sql().contains("(timestamp, id) <");
+        LocalDateTime afterTimestamp = keyset
+                ? (LocalDateTime) execution.binds().get(execution.binds().size() - 2)
+                : null;
+        long afterId = keyset ? (Long) execution.binds().getLast() : 0;
+        return table.stream()
+                .filter(event -> !keyset
+                        || newestFirst.compare(event, new StoredEvent(afterId, afterTimestamp)) > 0)
+                .sorted(newestFirst)
+                .limit(execution.limit())
+                .map(EventQueryServiceTests::readable)
+                .toList();
+    }
+
+    private static Readable readable(StoredEvent event) {
+        Map<String, Object> columns = Map.of(
+                "id", event.id(),
+                "event_type", "LOGIN",
+                "service_name", "AUTH_SERVICE",
+                "timestamp", event.timestamp());
+        return new Readable() {
+            @Override
+            public <T> T get(int index, Class<T> type) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public <T> T get(String name, Class<T> type) {
+                return type.cast(columns.get(name));
+            }
+        };
+    }
+
+    private record StoredEvent(long id, LocalDateTime timestamp) {
+    }
+
+    private record Execution(String sql, List<Object> binds, int limit) {
+    }
+}
@@ -0,0 +1,81 @@
+package ecommerce.monitoring_service.service;
+
+import ecommerce.monitoring_service.domain.MonitoringEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventWriteBufferTests {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        databaseClient = mock(DatabaseClient.class);
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class);
+        FetchSpec<Map<String, Object>> fetchSpec = mock(FetchSpec.class);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.bind(anyInt(), any())).thenReturn(spec);
+        when(spec.bindNull(anyInt(), any())).thenReturn(spec);
+        when(spec.fetch()).thenReturn(fetchSpec);
+        when(fetchSpec.rowsUpdated()).thenReturn(Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return failuresLeft.getAndDecrement() > 0
+                    ? Mono.error(new IllegalStateException("connection refused"))
+                    : Mono.just(1L);
+        }));
+    }
+
+    @Test
+    void retriesFailedBatchUntilItIsWritten() {
+        failuresLeft.set(2);
+        EventWriteBuffer buffer = buffer(5);
+
+        buffer.submit(event()).block();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> attempts.get() == 3);
+    }
+
+    @Test
+    void givesUpAfterRetriesAndKeepsFlushing() {
+        failuresLeft.set(3);
+        EventWriteBuffer buffer = buffer(2);
+
+        buffer.submit(event()).block();
+        await().atMost(Duration.ofSeconds(5)).until(() -> attempts.get() == 3);
+
+        buffer.submit(event()).block();
+        await().atMost(Duration.ofSeconds(5)).until(() -> attempts.get() == 4);
+        assertThat(failuresLeft.get()).isNegative();
+    }
+
+    private EventWriteBuffer buffer(int retries) {
+        return new EventWriteBuffer(databaseClient, 100, 1, Duration.ofSeconds(60),
+                Duration.ofMillis(10), EventWriteBuffer.OverflowPolicy.DROP_NEWEST,
+                Duration.ofSeconds(60), retries, Duration.ofMillis(1));
+    }
+
+    private static MonitoringEvent event() {
+        return new MonitoringEvent("LOGIN", "AUTH_SERVICE", "user", "agent", "city", "details",
+                LocalDateTime.now(), null);
+    }
+}
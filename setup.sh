@@ -110,11 +110,18 @@ keytool -import -trustcacerts -noprompt \
     -storepass $TRUSTSTORE_PASSWORD
 
 
-# 6. JWT Keys
-echo "Generating JWT keys..."
+# 6. JWT Keys (JWT_ALGORITHM: ED25519, ES256 or RS512)
+JWT_ALGORITHM="${JWT_ALGORITHM:-ED25519}"
+echo "Generating $JWT_ALGORITHM JWT keys..."
 for TYPE in access refresh service; do
-    openssl genrsa -out $JWT_DIR/${TYPE}-private.pem 4096
-    openssl rsa -in $JWT_DIR/${TYPE}-private.pem \
+    case "$JWT_ALGORITHM" in
+        ED25519) openssl genpkey -algorithm ed25519 -out $JWT_DIR/${TYPE}-private.pem ;;
+        ES256)   openssl genpkey -algorithm EC -pkeyopt ec_paramgen_curve:P-256 \
+                     -out $JWT_DIR/${TYPE}-private.pem ;;
+        RS512)   openssl genrsa -out $JWT_DIR/${TYPE}-private.pem 4096 ;;
+        *)       echo "Unsupported JWT_ALGORITHM: $JWT_ALGORITHM" >&2; exit 1 ;;
+    esac
+    openssl pkey -in $JWT_DIR/${TYPE}-private.pem \
         -pubout -out $JWT_DIR/${TYPE}-public.pem
 done
 
@@ -149,11 +156,21 @@ MONITORING_KEYSTORE_PASSWORD=${MONITORING_KEYSTORE_PASSWORD}
 
 # JWT Keys (auto-generated)
 JWT_ACCESS_PRIVATE_KEY=$(openssl pkcs8 -topk8 -nocrypt -in $JWT_DIR/access-private.pem -outform DER | base64 -w 0)
-JWT_ACCESS_PUBLIC_KEY=$(openssl rsa -pubin -in $JWT_DIR/access-public.pem -outform DER 2>/dev/null | base64 -w 0)
+JWT_ACCESS_PUBLIC_KEY=$(openssl pkey -pubin -in $JWT_DIR/access-public.pem -outform DER 2>/dev/null | base64 -w 0)
 JWT_REFRESH_PRIVATE_KEY=$(openssl pkcs8 -topk8 -nocrypt -in $JWT_DIR/refresh-private.pem -outform DER | base64 -w 0)
-JWT_REFRESH_PUBLIC_KEY=$(openssl rsa -pubin -in $JWT_DIR/refresh-public.pem -outform DER 2>/dev/null | base64 -w 0)
+JWT_REFRESH_PUBLIC_KEY=$(openssl pkey -pubin -in $JWT_DIR/refresh-public.pem -outform DER 2>/dev/null | base64 -w 0)
 JWT_SERVICE_PRIVATE_KEY=$(openssl pkcs8 -topk8 -nocrypt -in $JWT_DIR/service-private.pem -outform DER | base64 -w 0)
-JWT_SERVICE_PUBLIC_KEY=$(openssl rsa -pubin -in $JWT_DIR/service-public.pem -outform DER 2>/dev/null | base64 -w 0)
+JWT_SERVICE_PUBLIC_KEY=$(openssl pkey -pubin -in $JWT_DIR/service-public.pem -outform DER 2>/dev/null | base64 -w 0)
+JWT_ACCESS_ALGORITHM=${JWT_ALGORITHM}
+JWT_REFRESH_ALGORITHM=${JWT_ALGORITHM}
+JWT_SERVICE_ALGORITHM=${JWT_ALGORITHM}
+
+# Session id and refresh token HMAC keys (auto-generated)
+SESSION_HMAC_KEY=$(openssl rand -base64 32)
+REFRESH_TOKEN_HMAC_KEY=$(openssl rand -base64 32)
+
+# Capability token MAC key shared by auth_service and user_service (auto-generated)
+USER_SERVICE_CAPABILITY_KEY=$(openssl rand -base64 32)
 ENVEOF
 
 
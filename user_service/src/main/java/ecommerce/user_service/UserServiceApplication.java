@@ -1,5 +1,6 @@
 package ecommerce.user_service;
 
+import ecommerce.common.config.BlockingCallDetector;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -9,6 +10,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 public class UserServiceApplication {
 
     public static void main(String[] args) {
+        BlockingCallDetector.installIfEnabled();
         SpringApplication.run(UserServiceApplication.class, args);
     }
 
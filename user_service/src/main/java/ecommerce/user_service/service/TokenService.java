@@ -13,6 +13,10 @@ public interface TokenService {
     }
 
 
+    /**
+     * The ordinal is the destination's bit in capability tokens, so new destinations go at the
+     * end and auth_service's capability-token.user-service.destinations must list them in order.
+     */
     public enum Destination {
         CREATE_USER_DETAILS
     }
@@ -1,8 +1,10 @@
 package ecommerce.user_service.service.implementation;
 
-import ecommerce.user_service.service.MonitoringClient;
 import ecommerce.user_service.service.TokenService;
-import ecommerce.user_service.util.EventType;
+import ecommerce.user_service.util.CapabilityTokenVerifier;
+import ecommerce.user_service.util.JwtKeys;
+import ecommerce.common.monitoring.EventType;
+import ecommerce.common.monitoring.MonitoringClient;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import lombok.extern.slf4j.Slf4j;
@@ -11,10 +13,6 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
@@ -22,31 +20,31 @@ import java.util.Map;
 @Slf4j
 public class TokenServiceImpl implements TokenService {
 
-    private final PublicKey serviceTokenPublicKey;
     private final JwtParser jwtParser;
+    private final CapabilityTokenVerifier capabilityTokenVerifier;
     private final MonitoringClient monitoringClient;
 
     public TokenServiceImpl(
             @Value("${jwt.service.public.key}") String servicePublicKeyStr,
+            @Value("${jwt.service.additional-public-keys:}") String serviceAdditionalKeys,
+            @Value("${capability-token.key:}") String capabilityKey,
             MonitoringClient monitoringClient)
             throws Exception {
 
-        this.serviceTokenPublicKey = getPublicKeyFromString(servicePublicKeyStr);
-
-        this.jwtParser = Jwts.parserBuilder()
-                .setSigningKey(serviceTokenPublicKey)
-                .setAllowedClockSkewSeconds(60)
+        // Verification key is chosen by the token's kid, so auth_service can rotate keys or
+        // switch algorithms while tokens signed with the previous key are still in flight
+        this.jwtParser = Jwts.parser()
+                .keyLocator(JwtKeys.locator(
+                        JwtKeys.keyRing(servicePublicKeyStr, serviceAdditionalKeys),
+                        JwtKeys.parsePublicKey(servicePublicKeyStr)))
+                .clockSkewSeconds(60)
                 .build();
+        this.capabilityTokenVerifier = capabilityKey.isBlank()
+                ? null
+                : new CapabilityTokenVerifier(capabilityKey);
         this.monitoringClient = monitoringClient;
     }
 
-    private PublicKey getPublicKeyFromString(String key) throws Exception {
-        byte[] keyBytes = Base64.getDecoder().decode(key);
-        X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        return kf.generatePublic(spec);
-    }
-
     @Override
     public Mono<String> validateTokenAndGetUserId(
             Map<String, String> metadata,
@@ -65,7 +63,11 @@ public class TokenServiceImpl implements TokenService {
             return Mono.empty();
         }
 
-        return Mono.fromCallable(() -> jwtParser.parseClaimsJws(token).getBody())
+        if (CapabilityTokenVerifier.isCapabilityToken(token)) {
+            return validateCapabilityToken(token, metadata, destination);
+        }
+
+        return Mono.fromCallable(() -> jwtParser.parseSignedClaims(token).getPayload())
                 .subscribeOn(Schedulers.boundedElastic())
                 .flatMap(claims -> {
                     List<String> services = claims.get("services", List.class);
@@ -99,4 +101,23 @@ public class TokenServiceImpl implements TokenService {
                 });
     }
 
+    // A MAC check over a few dozen bytes, cheap enough to run on the calling thread
+    private Mono<String> validateCapabilityToken(String token, Map<String, String> metadata,
+            Destination destination) {
+        String userId = capabilityTokenVerifier == null ? null
+                : capabilityTokenVerifier.verify(token, destination.ordinal(),
+                        System.currentTimeMillis());
+        if (userId != null) {
+            return Mono.just(userId);
+        }
+        monitoringClient.sendEvent(
+                EventType.SERVICE_TOKEN_MISMATCH,
+                "USER_SERVICE",
+                "",
+                metadata.getOrDefault("userAgent", ""),
+                metadata.getOrDefault("clientCity", ""),
+                "Invalid capability token for destination: " + destination,
+                metadata);
+        return Mono.empty();
+    }
 }
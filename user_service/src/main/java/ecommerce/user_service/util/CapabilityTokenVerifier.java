@@ -0,0 +1,146 @@
+package ecommerce.user_service.util;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Verifies the capability tokens auth_service mints for this service when it runs with
+ * service-token.format=CAPABILITY. Layout before base64url encoding:
+ * <pre>
+ * version (1) | expiresAt epoch seconds (8) | destination bitmask (8) |
+ * userId length (1) | userId UTF-8 | HMAC-SHA256 truncated to 16 bytes
+ * </pre>
+ * Decoding and MAC checking work in per-thread scratch buffers; what is allocated per call is
+ * the digest the JDK's HMAC returns internally and, for an accepted token, the user id.
+ */
+public class CapabilityTokenVerifier {
+
+    public static final String PREFIX = "cap1.";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 18;
+    private static final int MAC_LENGTH = 16;
+    private static final int MAX_LENGTH = HEADER_LENGTH + 255 + MAC_LENGTH;
+
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final ThreadLocal<Scratch> scratch;
+
+    public CapabilityTokenVerifier(String base64Key) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("Capability key must be at least 256 bits");
+        }
+        SecretKeySpec key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.scratch = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return new Scratch(mac);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public static boolean isCapabilityToken(String token) {
+        return token.startsWith(PREFIX);
+    }
+
+    /**
+     * @return the user id when the token is authentic, unexpired and grants destinationBit;
+     * otherwise null
+     */
+    public String verify(String token, int destinationBit, long nowMillis) {
+        Scratch buffers = scratch.get();
+        byte[] bytes = buffers.bytes;
+        int length = decode(token, PREFIX.length(), bytes);
+        if (length < HEADER_LENGTH + MAC_LENGTH || bytes[0] != VERSION) {
+            return null;
+        }
+        int userIdLength = bytes[17] & 0xFF;
+        int signedLength = HEADER_LENGTH + userIdLength;
+        if (length != signedLength + MAC_LENGTH) {
+            return null;
+        }
+
+        Mac mac = buffers.mac;
+        mac.update(bytes, 0, signedLength);
+        try {
+            mac.doFinal(buffers.macOutput, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= buffers.macOutput[i] ^ bytes[signedLength + i];
+        }
+        if (difference != 0) {
+            return null;
+        }
+
+        long expiresAtSeconds = readLong(bytes, 1);
+        long mask = readLong(bytes, 9);
+        if (expiresAtSeconds * 1000 <= nowMillis || (mask & (1L << destinationBit)) == 0) {
+            return null;
+        }
+        return new String(bytes, HEADER_LENGTH, userIdLength, StandardCharsets.UTF_8);
+    }
+
+    // Unpadded base64url decoding into target; -1 when the input is malformed or too long
+    private static int decode(String token, int offset, byte[] target) {
+        int chars = token.length() - offset;
+        if (chars <= 0 || chars % 4 == 1 || chars * 3 / 4 > target.length) {
+            return -1;
+        }
+        int length = 0;
+        int accumulator = 0;
+        int bits = 0;
+        for (int i = offset; i < token.length(); i++) {
+            char c = token.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                target[length++] = (byte) (accumulator >> bits);
+            }
+        }
+        return length;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static final class Scratch {
+        private final Mac mac;
+        private final byte[] bytes = new byte[MAX_LENGTH];
+        private final byte[] macOutput = new byte[32];
+
+        private Scratch(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
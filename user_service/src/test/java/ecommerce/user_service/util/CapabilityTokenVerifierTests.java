@@ -0,0 +1,164 @@
+package ecommerce.user_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CapabilityTokenVerifierTests {
+
+    private static final byte[] KEY = filled(32, (byte) 7);
+    private static final long NOW = 1_800_000_000_000L;
+    private static final long EXPIRES = NOW + 60_000;
+
+    private final CapabilityTokenVerifier verifier =
+            new CapabilityTokenVerifier(Base64.getEncoder().encodeToString(KEY));
+
+    @Test
+    void acceptsAuthenticTokenForGrantedDestination() {
+        String token = sign(KEY, 1, EXPIRES, 0b101, "user-42");
+
+        assertThat(verifier.verify(token, 0, NOW)).isEqualTo("user-42");
+        assertThat(verifier.verify(token, 2, NOW)).isEqualTo("user-42");
+    }
+
+    @Test
+    void rejectsDestinationOutsideTheMask() {
+        String token = sign(KEY, 1, EXPIRES, 0b101, "user-42");
+
+        assertThat(verifier.verify(token, 1, NOW)).isNull();
+        assertThat(verifier.verify(token, 63, NOW)).isNull();
+    }
+
+    @Test
+    void rejectsTokenOnceItsExpiryIsReached() {
+        String token = sign(KEY, 1, EXPIRES, 1, "user-42");
+
+        assertThat(verifier.verify(token, 0, EXPIRES - 1000)).isEqualTo("user-42");
+        assertThat(verifier.verify(token, 0, EXPIRES)).isNull();
+        assertThat(verifier.verify(token, 0, EXPIRES + 1000)).isNull();
+    }
+
+    @Test
+    void rejectsTokenMacedWithAnotherKey() {
+        String token = sign(filled(32, (byte) 8), 1, EXPIRES, 1, "user-42");
+
+        assertThat(verifier.verify(token, 0, NOW)).isNull();
+    }
+
+    @Test
+    void rejectsAnyAlteredByte() {
+        byte[] bytes = decode(sign(KEY, 1, EXPIRES, 1, "user-42"));
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] altered = bytes.clone();
+            altered[i] ^= 0x01;
+
+            assertThat(verifier.verify(encode(altered), 0, NOW))
+                    .as("byte %d flipped", i)
+                    .isNull();
+        }
+    }
+
+    @Test
+    void rejectsWidenedMaskAndExtendedExpiry() {
+        // Granting more destinations or time needs the key, not just new header bytes
+        byte[] bytes = decode(sign(KEY, 1, EXPIRES, 1, "user-42"));
+        ByteBuffer.wrap(bytes).putLong(9, -1L);
+        assertThat(verifier.verify(encode(bytes), 0, NOW)).isNull();
+
+        bytes = decode(sign(KEY, 1, NOW - 1000, 1, "user-42"));
+        ByteBuffer.wrap(bytes).putLong(1, EXPIRES / 1000);
+        assertThat(verifier.verify(encode(bytes), 0, NOW)).isNull();
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        assertThat(verifier.verify(sign(KEY, 2, EXPIRES, 1, "user-42"), 0, NOW)).isNull();
+    }
+
+    @Test
+    void rejectsTruncatedAndExtendedTokens() {
+        byte[] bytes = decode(sign(KEY, 1, EXPIRES, 1, "user-42"));
+
+        assertThat(verifier.verify(encode(Arrays.copyOf(bytes, bytes.length - 1)), 0, NOW))
+                .isNull();
+        assertThat(verifier.verify(encode(Arrays.copyOf(bytes, bytes.length + 1)), 0, NOW))
+                .isNull();
+        assertThat(verifier.verify(encode(Arrays.copyOf(bytes, 20)), 0, NOW)).isNull();
+    }
+
+    @Test
+    void rejectsMalformedEncoding() {
+        String token = sign(KEY, 1, EXPIRES, 1, "user-42");
+
+        assertThat(verifier.verify(CapabilityTokenVerifier.PREFIX, 0, NOW)).isNull();
+        assertThat(verifier.verify(token.replace(token.charAt(10), '+'), 0, NOW)).isNull();
+        assertThat(verifier.verify(token + "A", 0, NOW)).isNull();
+        assertThat(verifier.verify(token + "é", 0, NOW)).isNull();
+        assertThat(verifier.verify(CapabilityTokenVerifier.PREFIX + "A".repeat(1000), 0, NOW))
+                .isNull();
+    }
+
+    @Test
+    void readsMultiByteUserIds() {
+        String token = sign(KEY, 1, EXPIRES, 1, "kullanıcı-ğ");
+
+        assertThat(verifier.verify(token, 0, NOW)).isEqualTo("kullanıcı-ğ");
+    }
+
+    @Test
+    void onlyPrefixedTokensAreCapabilityTokens() {
+        assertThat(CapabilityTokenVerifier.isCapabilityToken("cap1.AAAA")).isTrue();
+        assertThat(CapabilityTokenVerifier.isCapabilityToken("eyJhbGciOi.x.y")).isFalse();
+    }
+
+    @Test
+    void refusesShortKeys() {
+        assertThatThrownBy(() -> new CapabilityTokenVerifier(
+                Base64.getEncoder().encodeToString(new byte[16])))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Same layout auth_service's CapabilityTokenSigner writes
+    static String sign(byte[] key, int version, long expiresAtMillis, long mask, String userId) {
+        try {
+            byte[] userIdBytes = userId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(18 + userIdBytes.length + 16);
+            buffer.put((byte) version)
+                    .putLong(expiresAtMillis / 1000)
+                    .putLong(mask)
+                    .put((byte) userIdBytes.length)
+                    .put(userIdBytes);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            mac.update(buffer.array(), 0, buffer.position());
+            buffer.put(mac.doFinal(), 0, 16);
+            return encode(buffer.array());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return CapabilityTokenVerifier.PREFIX
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] decode(String token) {
+        return Base64.getUrlDecoder()
+                .decode(token.substring(CapabilityTokenVerifier.PREFIX.length()));
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
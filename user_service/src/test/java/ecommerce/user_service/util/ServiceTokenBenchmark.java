@@ -0,0 +1,121 @@
+package ecommerce.user_service.util;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Times verification of the service token formats user_service accepts, as TokenServiceImpl
+ * runs it: the capability token, and a JWT under each signing algorithm, parsed with a kid
+ * locator. Reports time and heap allocated per verification on one thread. Opt-in:
+ * <pre>
+ * mvn test -Dtest=ServiceTokenBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ServiceTokenBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void verifyEveryFormat() throws Exception {
+        System.out.printf("%-12s %8s %14s %16s%n", "format", "chars", "ns/verify",
+                "bytes/verify");
+
+        byte[] key = new byte[32];
+        CapabilityTokenVerifier verifier =
+                new CapabilityTokenVerifier(Base64.getEncoder().encodeToString(key));
+        long expires = System.currentTimeMillis() + 3_600_000;
+        String capability = CapabilityTokenVerifierTests.sign(key, 1, expires, 1,
+                "3f2b8c9e-1d4a-4e6b-9a7c-5d8e2f1b0c3a");
+        report("capability", capability.length(),
+                () -> verifier.verify(capability, 0, System.currentTimeMillis()));
+
+        report("jwt RS512", jwtVerification("RSA", 4096, null));
+        report("jwt ES256", jwtVerification("EC", 0, new ECGenParameterSpec("secp256r1")));
+        report("jwt Ed25519", jwtVerification("Ed25519", 0, null));
+    }
+
+    private Verification jwtVerification(String algorithm, int size, ECGenParameterSpec curve)
+            throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        if (size > 0) {
+            generator.initialize(size);
+        } else if (curve != null) {
+            generator.initialize(curve);
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+
+        String token = Jwts.builder()
+                .header().keyId(JwtKeys.keyId(keyPair.getPublic())).and()
+                .subject("3f2b8c9e-1d4a-4e6b-9a7c-5d8e2f1b0c3a")
+                .claim("services", List.of("USER_SERVICE"))
+                .claim("destinations", List.of("CREATE_USER_DETAILS"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        JwtParser parser = Jwts.parser()
+                .keyLocator(JwtKeys.locator(JwtKeys.keyRing(publicKey, ""),
+                        JwtKeys.parsePublicKey(publicKey)))
+                .clockSkewSeconds(60)
+                .build();
+        return new Verification(token.length(), () -> {
+            Map<String, Object> claims = parser.parseSignedClaims(token).getPayload();
+            return ((List<?>) claims.get("destinations")).contains("CREATE_USER_DETAILS")
+                    ? (String) claims.get("sub")
+                    : null;
+        });
+    }
+
+    private void report(String format, Verification verification) {
+        report(format, verification.chars(), verification.verify());
+    }
+
+    private void report(String format, int chars, Supplier<String> verify) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(verify);
+        }
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long verified = run(verify);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-12s %8d %14.0f %16.1f%n", format, chars,
+                (double) elapsed / verified, (double) allocated / verified);
+    }
+
+    private static long run(Supplier<String> verify) {
+        long deadline = System.nanoTime() + ROUND_NANOS;
+        long verified = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 64; i++) {
+                if (verify.get() == null) {
+                    throw new IllegalStateException("Token did not verify");
+                }
+            }
+            verified += 64;
+        }
+        return verified;
+    }
+
+    private record Verification(int chars, Supplier<String> verify) {
+    }
+}